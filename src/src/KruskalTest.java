@@ -16,6 +16,9 @@ public class KruskalTest {
   private static boolean tree = true;
   private static boolean minTree = true;
 
+  // One Neighbors object per DFS depth, reused by getNeighbors().
+  private static Neighbors[] neighPool = new Neighbors[VERTICES];
+
   public static void addRandomEdges(WUGraph g, Object[] vertArray) {
     int i, j;
 
@@ -35,14 +38,23 @@ public class KruskalTest {
 
   public static void DFS(WUGraph t, DFSVertex current, DFSVertex prev,
                          int[] maxOnPath, int maxEdge) {
+    DFS(t, current, prev, maxOnPath, maxEdge, 0);
+  }
+
+  private static void DFS(WUGraph t, DFSVertex current, DFSVertex prev,
+                          int[] maxOnPath, int maxEdge, int depth) {
     Neighbors neigh;
-    int i;
+    int i, degree;
 
     current.visited = true;
     maxOnPath[current.number] = maxEdge;
-    neigh = t.getNeighbors(current);
-    if (neigh != null) {
-      for (i = 0; i < neigh.neighborList.length; i++) {
+    if (neighPool[depth] == null) {
+      neighPool[depth] = new Neighbors();
+    }
+    neigh = neighPool[depth];
+    degree = t.getNeighbors(current, neigh);
+    if (degree > 0) {
+      for (i = 0; i < degree; i++) {
         DFSVertex next = (DFSVertex) neigh.neighborList[i];
         if (next.visited) {
           if ((next != current) && (next != prev)) {
@@ -50,9 +62,9 @@ public class KruskalTest {
             return;
           }
         } else if (neigh.weightList[i] > maxEdge) {
-          DFS(t, next, current, maxOnPath, neigh.weightList[i]);
+          DFS(t, next, current, maxOnPath, neigh.weightList[i], depth + 1);
         } else {
-          DFS(t, next, current, maxOnPath, maxEdge);
+          DFS(t, next, current, maxOnPath, maxEdge, depth + 1);
         }
         if (!tree) {
           return;
@@ -19,10 +19,33 @@ import src.list.*;
 public class HashTableChained {
 	
   private static double loadfactor = 0.75;
+  private static final int MIGRATE_STEP = 4;    // old buckets moved per call
   protected int entrySize;
   protected int bucketSize;
   protected List[] buckets;
 
+  /**
+   *  While an incremental resize is under way, oldBuckets holds the previous
+   *  bucket array; its buckets below "migrated" have already been moved into
+   *  "buckets" and set to null.  Outside a resize oldBuckets is null.
+   **/
+  protected boolean incremental;
+  protected List[] oldBuckets;
+  protected int oldBucketSize;
+  protected int migrated;
+
+  /**
+   *  Counters reported by stats().  The resize counters are always kept;
+   *  the find and remove counters only while recordStats is true.
+   **/
+  protected boolean recordStats;
+  protected int resizes;
+  protected long resizeNanos;
+  protected long finds;
+  protected long findProbes;
+  protected long removes;
+  protected long removeProbes;
+
   /** 
    *  Construct a new empty hash table intended to hold roughly sizeEstimate
    *  entries.  (The precise number of buckets is up to you, but we recommend
@@ -37,7 +60,7 @@ public class HashTableChained {
     do {
     	isPrime = true;
     	bucketSize ++;
-    	for(int i = 2; i < bucketSize/2; i++) {
+    	for(int i = 2; i * i <= bucketSize; i++) {
     		if(bucketSize % i == 0) {
     			isPrime = false;
     			break;
@@ -48,6 +71,22 @@ public class HashTableChained {
     entrySize = 0;
   }
 
+  /**
+   *  Construct a new empty hash table intended to hold roughly sizeEstimate
+   *  entries.  If "incremental" is true, the table never rehashes all its
+   *  entries at once.  When it outgrows its buckets it allocates the new
+   *  bucket array and keeps the old one beside it.  After that, every
+   *  insert, find and remove moves a few old buckets across before doing
+   *  its own work, and looks in the old array as well until the move is
+   *  complete.  The cost of a resize is thus spread over the operations
+   *  that follow it, and no single insert pays for all of it.
+   **/
+
+  public HashTableChained(int sizeEstimate, boolean incremental) {
+    this(sizeEstimate);
+    this.incremental = incremental;
+  }
+
   /** 
    *  Construct a new empty hash table with a default size.  Say, a prime in
    *  the neighborhood of 100.
@@ -110,14 +149,19 @@ public class HashTableChained {
    **/
 
   public Entry insert(Object key, Object value) {
+	this.migrate();
 	int num = compFunction(key.hashCode());
 	Entry newEntry = new Entry();
 	newEntry.key = key;
 	newEntry.value = value;
-    this.buckets[num].insertBack(newEntry);
+    this.bucket(num).insertBack(newEntry);
     this.entrySize++;
     if(this.entrySize>=this.bucketSize) {
-    	this.resize();
+    	if(this.incremental) {
+    		this.startResize();
+    	} else {
+    		this.resize();
+    	}
     }
     return newEntry;
   }
@@ -135,35 +179,16 @@ public class HashTableChained {
    **/
 
   public Entry find(Object key) {
-	Entry output = null;
-	boolean find = false;
-    int num = compFunction(key.hashCode());
-    if(!buckets[num].isEmpty()) {
-    	ListNode cuNode = buckets[num].front();
-    	while(cuNode.isValidNode()) {
-    		try {
-				output = (Entry) cuNode.item();
-			} catch (InvalidNodeException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-    		if(output.key.equals(key)) {
-    			find = true;
-    			break;
-    		}
-    		try {
-				cuNode = cuNode.next();
-			} catch (InvalidNodeException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-    	}
-    }
-    if(find) {
-    	return output;
-    } else {
-    	return null;
-    }
+	this.migrate();
+	int code = key.hashCode();
+	Entry output = search(buckets[compFunction(code)], key, false);
+	if(output == null && oldBuckets != null) {
+		output = search(oldBucket(code), key, false);
+	}
+	if(recordStats) {
+		finds++;
+	}
+	return output;
   }
 
   /** 
@@ -180,32 +205,70 @@ public class HashTableChained {
    */
 
   public Entry remove(Object key) {
-	  	Entry output = null;
-		boolean find = false;
-	    int num = compFunction(key.hashCode());
-	    if(!buckets[num].isEmpty()) {
-	    	ListNode cuNode = buckets[num].front();
-	    	while(cuNode.isValidNode()) {
-	    		try {
-					output = (Entry) cuNode.item();
-					if(output.key.equals(key)) {
-						find = true;
-						cuNode.remove();
-						entrySize--;
-						break;
-					}
-					cuNode = cuNode.next();
-				} catch (InvalidNodeException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
+	this.migrate();
+	int code = key.hashCode();
+	Entry output = search(buckets[compFunction(code)], key, true);
+	if(output == null && oldBuckets != null) {
+		output = search(oldBucket(code), key, true);
+	}
+	if(output != null) {
+		entrySize--;
+	}
+	if(recordStats) {
+		removes++;
+	}
+	return output;
+  }
+
+  /**
+   *  search() returns an entry of "bucket" with the specified key, or null if
+   *  there is none (or the bucket is null).  If "remove" is true, the entry
+   *  is also unlinked from the bucket.  Each entry compared counts as one
+   *  probe.
+   */
+  private Entry search(List bucket, Object key, boolean remove) {
+	if(bucket == null || bucket.isEmpty()) {
+		return null;
+	}
+	Entry found = null;
+	int probes = 0;
+	ListNode cuNode = bucket.front();
+	while(cuNode.isValidNode()) {
+		try {
+			Entry output = (Entry) cuNode.item();
+			probes++;
+			if(output.key.equals(key)) {
+				if(remove) {
+					cuNode.remove();
 				}
-	    	}
-	    }
-	    if(find) {
-	    	return output;
-	    } else {
-	    	return null;
-	    }
+				found = output;
+				break;
+			}
+			cuNode = cuNode.next();
+		} catch (InvalidNodeException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	if(recordStats) {
+		if(remove) {
+			removeProbes += probes;
+		} else {
+			findProbes += probes;
+		}
+	}
+	return found;
+  }
+
+  /**
+   *  oldBucket() returns the bucket of the old array that holds hash code
+   *  "code", or null if that bucket has already been migrated.
+   */
+  private List oldBucket(int code) {
+	int num = code % oldBucketSize;
+	if(num < 0) {
+		num += oldBucketSize;
+	}
+	return oldBuckets[num];
   }
 
   /**
@@ -216,36 +279,191 @@ public class HashTableChained {
     	buckets[i] = new SList();
     }
     entrySize = 0;
+    oldBuckets = null;
   }
 
+  /**
+   *  resize() moves every entry into a new, larger bucket array at once.
+   *  The Entry objects themselves are moved, not copied.  If an incremental
+   *  resize is under way, it is finished first.
+   */
   public void resize() {
+	  this.finishResize();
+	  HashTableResizeEvent event = this.beginResize();
 	  List[] tempBuckets = this.buckets;
+	  this.allocateBuckets();
+	  for(int i=0;i < tempBuckets.length; i++) {
+		  this.moveBucket(tempBuckets[i]);
+	  }
+	  this.endResize(event, tempBuckets.length);
+  }
+
+  /**
+   *  startResize() sets the current buckets aside as the old array and
+   *  installs a new, larger one, to be filled by migrate().
+   */
+  private void startResize() {
+	  this.finishResize();
+	  HashTableResizeEvent event = this.beginResize();
+	  oldBuckets = this.buckets;
+	  oldBucketSize = this.bucketSize;
+	  migrated = 0;
+	  this.allocateBuckets();
+	  this.endResize(event, oldBucketSize);
+  }
+
+  private HashTableResizeEvent beginResize() {
+	  HashTableResizeEvent event = new HashTableResizeEvent();
+	  event.begin();
+	  resizeNanos -= System.nanoTime();
+	  return event;
+  }
+
+  /**
+   *  endResize() adds the resize that began with "event" to the counters,
+   *  and commits the event if a JFR recording wants it.
+   */
+  private void endResize(HashTableResizeEvent event, int from) {
+	  resizeNanos += System.nanoTime();
+	  resizes++;
+	  event.end();
+	  if(event.shouldCommit()) {
+		  event.entries = entrySize;
+		  event.oldBuckets = from;
+		  event.newBuckets = bucketSize;
+		  event.incremental = incremental;
+		  event.commit();
+	  }
+  }
+
+  /**
+   *  migrate() moves up to MIGRATE_STEP buckets of the old array into the new
+   *  one.  A table resizes when its entries reach its bucket count and grows
+   *  by a third, so at least a third as many inserts as there are old
+   *  buckets come before the next resize; the old array is empty long
+   *  before then.
+   */
+  private void migrate() {
+	  if(oldBuckets == null) {
+		  return;
+	  }
+	  int stop = Math.min(migrated + MIGRATE_STEP, oldBucketSize);
+	  for(; migrated < stop; migrated++) {
+		  this.moveBucket(oldBuckets[migrated]);
+		  oldBuckets[migrated] = null;
+	  }
+	  if(migrated == oldBucketSize) {
+		  oldBuckets = null;
+	  }
+  }
+
+  private void finishResize() {
+	  while(oldBuckets != null) {
+		  this.migrate();
+	  }
+  }
+
+  /**
+   *  allocateBuckets() installs a new, larger bucket array.  Its buckets are
+   *  left null and created by bucket() when first used, so the resize
+   *  itself does no work per bucket.
+   */
+  private void allocateBuckets() {
 	  this.buckets = new HashTableChained(bucketSize).buckets;
 	  this.bucketSize = this.buckets.length;
-	  this.makeEmpty();
-	  for(int i=0;i < tempBuckets.length; i++) {
-		  if(!tempBuckets[i].isEmpty()) {
-		    	ListNode cuNode = tempBuckets[i].front();
-		    	Entry cuEntry;
-		    	while(cuNode.isValidNode()) {
-		    		try {
-						cuEntry = (Entry) cuNode.item();
-						this.insert(cuEntry.key, cuEntry.value);
-					} catch (InvalidNodeException e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
-					}
-		    		try {
-						cuNode = cuNode.next();
-					} catch (InvalidNodeException e) {
-						// TODO Auto-generated catch block
-						e.printStackTrace();
-					}
-		    	}
-		    }
+  }
+
+  private List bucket(int num) {
+	  if(buckets[num] == null) {
+		  buckets[num] = new SList();
+	  }
+	  return buckets[num];
+  }
+
+  /**
+   *  moveBucket() re-files every entry of "bucket" under the current bucket
+   *  array, reusing the Entry objects.
+   */
+  private void moveBucket(List bucket) {
+	  if(bucket == null || bucket.isEmpty()) {
+		  return;
+	  }
+	  ListNode cuNode = bucket.front();
+	  Entry cuEntry;
+	  while(cuNode.isValidNode()) {
+		  try {
+			  cuEntry = (Entry) cuNode.item();
+			  this.bucket(compFunction(cuEntry.key.hashCode())).insertBack(cuEntry);
+			  cuNode = cuNode.next();
+		  } catch (InvalidNodeException e) {
+			  throw new IllegalStateException(e);
+		  }
 	  }
   }
   
+  /**
+   *  setRecordStats() turns the find and remove counters reported by stats()
+   *  on or off.  They are off by default.
+   */
+  public void setRecordStats(boolean on) {
+	  recordStats = on;
+  }
+
+  /**
+   *  stats() returns a snapshot of how the entries are spread over the
+   *  buckets (chain lengths and their histogram) together with the resize,
+   *  find and remove counters.  See HashTableStats.
+   *
+   *  Running time:  O(number of buckets).
+   */
+  public HashTableStats stats() {
+	  HashTableStats stats = new HashTableStats();
+	  int[] histogram = new int[8];
+	  List[][] arrays = { buckets, oldBuckets };
+	  for(int a = 0; a < arrays.length; a++) {
+		  if(arrays[a] == null) {
+			  continue;
+		  }
+		  for(int i = 0; i < arrays[a].length; i++) {
+			  int length = arrays[a][i] == null ? 0 : arrays[a][i].length();
+			  if(length >= histogram.length) {
+				  int[] grown = new int[Math.max(2 * histogram.length, length + 1)];
+				  System.arraycopy(histogram, 0, grown, 0, histogram.length);
+				  histogram = grown;
+			  }
+			  histogram[length]++;
+			  if(length > 0) {
+				  stats.usedBuckets++;
+			  }
+			  stats.maxChain = Math.max(stats.maxChain, length);
+		  }
+		  stats.buckets += arrays[a].length;
+	  }
+	  stats.histogram = new int[stats.maxChain + 1];
+	  System.arraycopy(histogram, 0, stats.histogram, 0, stats.maxChain + 1);
+	  stats.entries = entrySize;
+	  stats.meanChain = (double) entrySize / Math.max(stats.usedBuckets, 1);
+	  stats.resizes = resizes;
+	  stats.resizeNanos = resizeNanos;
+	  stats.finds = finds;
+	  stats.findProbes = findProbes;
+	  stats.removes = removes;
+	  stats.removeProbes = removeProbes;
+	  return stats;
+  }
+
+  /**
+   *  chainReport() returns a one-line summary of stats():  the number of
+   *  entries and buckets, the fraction of buckets in use, the longest chain,
+   *  the mean length of the non-empty chains, the number of collisions
+   *  (entries that share a bucket with an earlier one), and the counters.
+   *  Under uniform hashing at load factor a, about 1 - e^-a of the buckets
+   *  are in use.
+   */
+  public String chainReport() {
+	  return this.stats().toString();
+  }
+
   public static void main(String args[]) {
 	  HashTableChained h = new HashTableChained(20);
 	  h.makeEmpty();
@@ -254,5 +472,56 @@ public class HashTableChained {
 		  h.insert(ii, ii);
 	  }
 	  System.out.println(h.bucketSize);
+
+	  // Run the same random operations on a plain and an incremental table
+	  // and check that they agree, then time the slowest insert that set off
+	  // a resize in each while loading a million entries.  (Inserts that
+	  // happen to meet a garbage collection pause are slow in both and say
+	  // nothing about the table, so only resizing inserts are counted.)
+	  java.util.Random random = new java.util.Random(3);
+	  HashTableChained plain = new HashTableChained(4);
+	  plain.makeEmpty();
+	  HashTableChained inc = new HashTableChained(4, true);
+	  inc.makeEmpty();
+	  boolean ok = true;
+	  for(int step = 0; step < 300000 && ok; step++) {
+		  Integer key = Integer.valueOf(random.nextInt(50000));
+		  int op = random.nextInt(4);
+		  if(op < 2) {
+			  plain.insert(key, key);
+			  inc.insert(key, key);
+		  } else if(op == 2) {
+			  ok = (plain.remove(key) == null) == (inc.remove(key) == null);
+		  } else {
+			  ok = (plain.find(key) == null) == (inc.find(key) == null);
+		  }
+		  ok = ok && plain.size() == inc.size();
+	  }
+	  System.out.println("Incremental resize test " +
+			  (ok ? "passed." : "FAILED."));
+
+	  int n = 1000000;
+	  Integer[] keys = new Integer[n];
+	  for(int i = 0; i < n; i++) {
+		  keys[i] = Integer.valueOf(i);
+	  }
+	  for(int pass = 0; pass < 2; pass++) {
+		  HashTableChained t = new HashTableChained(4, pass == 1);
+		  t.makeEmpty();
+		  long worst = 0;
+		  long start = System.nanoTime();
+		  for(int i = 0; i < n; i++) {
+			  int size = t.bucketSize;
+			  long before = System.nanoTime();
+			  t.insert(keys[i], keys[i]);
+			  if(t.bucketSize != size) {
+				  worst = Math.max(worst, System.nanoTime() - before);
+			  }
+		  }
+		  long total = System.nanoTime() - start;
+		  System.out.println((pass == 1 ? "incremental" : "one-shot") +
+				  " resize: " + total / 1000000 + " ms total, slowest resizing insert " +
+				  worst / 1000 + " us");
+	  }
   }
 }
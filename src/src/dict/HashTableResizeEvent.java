@@ -0,0 +1,33 @@
+/* HashTableResizeEvent.java */
+
+package src.dict;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ *  The JFR event that HashTableChained commits for every resize.  Its
+ *  duration is the time the resize took inline; for an incremental resize
+ *  that is only the allocation of the new bucket array.
+ **/
+
+@Name("src.dict.HashTableResize")
+@Label("Hash Table Resize")
+@Category("Kruskal")
+@Description("A HashTableChained moved to a larger bucket array")
+class HashTableResizeEvent extends Event {
+  @Label("Entries")
+  int entries;
+
+  @Label("Old Buckets")
+  int oldBuckets;
+
+  @Label("New Buckets")
+  int newBuckets;
+
+  @Label("Incremental")
+  boolean incremental;
+}
@@ -0,0 +1,168 @@
+/* HashTableStats.java */
+
+package src.dict;
+
+import java.io.File;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ *  A HashTableStats is a snapshot of the shape and history of a
+ *  HashTableChained, taken by HashTableChained.stats().
+ *
+ *  The chain figures are computed from the buckets when the snapshot is
+ *  taken.  histogram[k] is the number of buckets holding exactly k entries.
+ *  The resize figures are always kept.  The find and remove counters are
+ *  kept only while HashTableChained.setRecordStats(true) is in effect, so
+ *  that a table nobody is watching pays nothing for them.  A probe is one
+ *  entry compared against the search key.
+ *
+ *  publish() emits the snapshot as a JFR event (src.dict.HashTableStats),
+ *  and every resize emits one as well (src.dict.HashTableResize), so a
+ *  Flight Recorder session shows degenerate hashCode()s (long chains, many
+ *  probes per find) without attaching a profiler.
+ *
+ *  Since this class is NOT an abstract data type, but is merely a collection of
+ *  data, all fields are public.
+ **/
+
+public class HashTableStats {
+  public int entries;
+  public int buckets;
+  public int usedBuckets;
+  public int maxChain;
+  public double meanChain;                  // over the non-empty buckets
+  public int[] histogram;
+  public int resizes;
+  public long resizeNanos;
+  public long finds;
+  public long findProbes;
+  public long removes;
+  public long removeProbes;
+
+  /**
+   *  probesPerFind() returns the mean number of probes per find(), or zero
+   *  if none were recorded.
+   **/
+  public double probesPerFind() {
+    return finds == 0 ? 0.0 : (double) findProbes / finds;
+  }
+
+  /**
+   *  probesPerRemove() returns the mean number of probes per remove(), or
+   *  zero if none were recorded.
+   **/
+  public double probesPerRemove() {
+    return removes == 0 ? 0.0 : (double) removeProbes / removes;
+  }
+
+  /**
+   *  publish() commits this snapshot as a JFR event.  It costs next to
+   *  nothing when no recording has the event enabled.
+   **/
+  public void publish() {
+    HashTableStatsEvent event = new HashTableStatsEvent();
+    if (event.shouldCommit()) {
+      event.entries = entries;
+      event.buckets = buckets;
+      event.maxChain = maxChain;
+      event.meanChain = meanChain;
+      event.resizes = resizes;
+      event.resizeNanos = resizeNanos;
+      event.probesPerFind = probesPerFind();
+      event.probesPerRemove = probesPerRemove();
+      event.commit();
+    }
+  }
+
+  public String toString() {
+    return entries + " entries in " + buckets + " buckets, " +
+           (100L * usedBuckets / Math.max(buckets, 1)) +
+           "% in use, longest chain " + maxChain + ", mean chain " +
+           String.format("%.2f", meanChain) + ", " + (entries - usedBuckets) +
+           " collisions, " + resizes + " resizes in " +
+           resizeNanos / 1000000 + " ms, " +
+           String.format("%.2f", probesPerFind()) + " probes per find";
+  }
+
+  /**
+   *  main() is test code.  It loads one table with well-spread keys and one
+   *  with keys whose hashCode() is nearly constant, prints both snapshots,
+   *  and checks that a JFR recording taken meanwhile holds the resize and
+   *  stats events.
+   **/
+  public static void main(String[] args) throws Exception {
+    Recording recording = new Recording();
+    recording.enable("src.dict.HashTableResize");
+    recording.enable("src.dict.HashTableStats");
+    recording.start();
+
+    HashTableChained good = new HashTableChained(16);
+    HashTableChained bad = new HashTableChained(16);
+    good.makeEmpty();
+    bad.makeEmpty();
+    good.setRecordStats(true);
+    bad.setRecordStats(true);
+    int n = 20000;
+    for (int i = 0; i < n; i++) {
+      good.insert(Integer.valueOf(i), null);
+      bad.insert(new Clumped(i), null);
+    }
+    for (int i = 0; i < n; i += 2) {
+      good.find(Integer.valueOf(i));
+      bad.find(new Clumped(i));
+    }
+    HashTableStats goodStats = good.stats();
+    HashTableStats badStats = bad.stats();
+    goodStats.publish();
+    badStats.publish();
+    System.out.println("Integer keys:  " + goodStats);
+    System.out.println("Clumped keys:  " + badStats);
+
+    recording.stop();
+    File file = File.createTempFile("hashtable", ".jfr");
+    recording.dump(file.toPath());
+    recording.close();
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file.toPath());
+    file.delete();
+    int resizeEvents = 0;
+    int statsEvents = 0;
+    for (RecordedEvent e : events) {
+      String name = e.getEventType().getName();
+      if (name.equals("src.dict.HashTableResize")) {
+        resizeEvents++;
+      } else if (name.equals("src.dict.HashTableStats")) {
+        statsEvents++;
+      }
+    }
+    boolean ok = resizeEvents == goodStats.resizes + badStats.resizes &&
+                 statsEvents == 2 &&
+                 goodStats.finds == n / 2 && badStats.maxChain > 100 &&
+                 badStats.probesPerFind() > 10 * goodStats.probesPerFind();
+    System.out.println(resizeEvents + " resize events, " + statsEvents +
+                       " stats events recorded; " +
+                       (ok ? "test passed." : "test FAILED."));
+  }
+
+  /**
+   *  A key with a degenerate hashCode():  only 64 distinct values.
+   **/
+  private static class Clumped {
+    private final int i;
+
+    Clumped(int i) {
+      this.i = i;
+    }
+
+    public int hashCode() {
+      return i & 63;
+    }
+
+    public boolean equals(Object o) {
+      return o instanceof Clumped && ((Clumped) o).i == i;
+    }
+  }
+}
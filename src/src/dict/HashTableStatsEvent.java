@@ -0,0 +1,45 @@
+/* HashTableStatsEvent.java */
+
+package src.dict;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ *  The JFR event that HashTableStats.publish() commits.
+ **/
+
+@Name("src.dict.HashTableStats")
+@Label("Hash Table Statistics")
+@Category("Kruskal")
+@Description("A snapshot of the chains and counters of a HashTableChained")
+class HashTableStatsEvent extends Event {
+  @Label("Entries")
+  int entries;
+
+  @Label("Buckets")
+  int buckets;
+
+  @Label("Longest Chain")
+  int maxChain;
+
+  @Label("Mean Chain")
+  double meanChain;
+
+  @Label("Resizes")
+  int resizes;
+
+  @Label("Resize Time")
+  @Timespan(Timespan.NANOSECONDS)
+  long resizeNanos;
+
+  @Label("Probes per Find")
+  double probesPerFind;
+
+  @Label("Probes per Remove")
+  double probesPerRemove;
+}
@@ -0,0 +1,211 @@
+/* IntIntMap.java */
+
+package src.dict;
+
+/**
+ *  IntIntMap maps int keys to int values.  Unlike HashTableChained, it
+ *  allocates no object per mapping:  keys and values live in two flat
+ *  parallel arrays whose length is a power of two, so the compression
+ *  function is a mask and a lookup touches one or two cache lines.  Hash
+ *  codes are run through a strong mixer first, so sequential keys do not
+ *  end up in sequential slots.
+ *
+ *  Collisions are resolved by linear probing; remove() shifts later entries
+ *  of the probe run back, so no deleted markers ever accumulate.  The slot
+ *  value FREE (zero) marks an empty slot; the key zero itself is stored
+ *  outside the arrays.  Each key maps to at most one value:  put() replaces.
+ **/
+
+public class IntIntMap {
+
+  private static final int FREE = 0;
+
+  protected int[] keys;
+  protected int[] values;
+  protected int size;                    // mappings in the arrays
+  protected boolean hasZero;
+  protected int zeroValue;
+
+  /**
+   *  Construct an empty map with room for roughly "expected" mappings before
+   *  the arrays grow.
+   **/
+  public IntIntMap(int expected) {
+    int capacity = capacityFor(expected);
+    keys = new int[capacity];
+    values = new int[capacity];
+  }
+
+  /**
+   *  Construct an empty map with a small default size.
+   **/
+  public IntIntMap() {
+    this(8);
+  }
+
+  /**
+   *  Returns the number of mappings in the map.
+   **/
+  public int size() {
+    return size + (hasZero ? 1 : 0);
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   *  Returns true if "key" is mapped to some value.
+   **/
+  public boolean containsKey(int key) {
+    if (key == FREE) {
+      return hasZero;
+    }
+    return slot(key) >= 0;
+  }
+
+  /**
+   *  Returns the value mapped to "key", or "missing" if there is none.
+   *
+   *  Running time:  O(1) expected.
+   **/
+  public int get(int key, int missing) {
+    if (key == FREE) {
+      return hasZero ? zeroValue : missing;
+    }
+    int i = slot(key);
+    return i >= 0 ? values[i] : missing;
+  }
+
+  /**
+   *  Maps "key" to "value", replacing any previous value.
+   *
+   *  Running time:  O(1) amortized.
+   **/
+  public void put(int key, int value) {
+    if (key == FREE) {
+      hasZero = true;
+      zeroValue = value;
+      return;
+    }
+    int mask = keys.length - 1;
+    int i = mix(key) & mask;
+    int k;
+    while ((k = keys[i]) != FREE) {
+      if (k == key) {
+        values[i] = value;
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = value;
+    if (++size > maxSize(keys.length)) {
+      rehash(keys.length * 2);
+    }
+  }
+
+  /**
+   *  Removes the mapping for "key".  Returns true if there was one.
+   *
+   *  Running time:  O(1) expected.
+   **/
+  public boolean remove(int key) {
+    if (key == FREE) {
+      boolean had = hasZero;
+      hasZero = false;
+      return had;
+    }
+    int i = slot(key);
+    if (i < 0) {
+      return false;
+    }
+    int mask = keys.length - 1;
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      int k = keys[j];
+      if (k == FREE) {
+        break;
+      }
+      int home = mix(k) & mask;
+      // Move k back into the hole at i unless its home lies cyclically in
+      // (i, j], where it would become unreachable.
+      if (((j - home) & mask) >= ((j - i) & mask)) {
+        keys[i] = k;
+        values[i] = values[j];
+        i = j;
+      }
+    }
+    keys[i] = FREE;
+    size--;
+    return true;
+  }
+
+  /**
+   *  Removes all mappings.
+   **/
+  public void makeEmpty() {
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = FREE;
+    }
+    size = 0;
+    hasZero = false;
+  }
+
+  private int slot(int key) {
+    int mask = keys.length - 1;
+    int i = mix(key) & mask;
+    int k;
+    while ((k = keys[i]) != FREE) {
+      if (k == key) {
+        return i;
+      }
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void rehash(int capacity) {
+    int[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new int[capacity];
+    values = new int[capacity];
+    int mask = capacity - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      int k = oldKeys[j];
+      if (k != FREE) {
+        int i = mix(k) & mask;
+        while (keys[i] != FREE) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = k;
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  private static int maxSize(int capacity) {
+    return capacity - (capacity >>> 2);
+  }
+
+  static int capacityFor(int expected) {
+    int capacity = 8;
+    while (maxSize(capacity) < expected) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  /**
+   *  mix() is the 32-bit finalizer from MurmurHash3.
+   **/
+  static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
@@ -0,0 +1,198 @@
+/* LongIntMap.java */
+
+package src.dict;
+
+/**
+ *  LongIntMap maps long keys to int values.  Unlike HashTableChained, it
+ *  allocates no object per mapping; it is laid out exactly like IntIntMap,
+ *  with a long[] of keys, and suits keys that pack two ints, such as the
+ *  endpoint ids of an edge.
+ *
+ *  Collisions are resolved by linear probing; remove() shifts later entries
+ *  of the probe run back, so no deleted markers ever accumulate.  The slot
+ *  value FREE (zero) marks an empty slot; the key zero itself is stored
+ *  outside the arrays.  Each key maps to at most one value:  put() replaces.
+ **/
+
+public class LongIntMap {
+
+  private static final long FREE = 0L;
+
+  protected long[] keys;
+  protected int[] values;
+  protected int size;                    // mappings in the arrays
+  protected boolean hasZero;
+  protected int zeroValue;
+
+  /**
+   *  Construct an empty map with room for roughly "expected" mappings before
+   *  the arrays grow.
+   **/
+  public LongIntMap(int expected) {
+    int capacity = IntIntMap.capacityFor(expected);
+    keys = new long[capacity];
+    values = new int[capacity];
+  }
+
+  /**
+   *  Construct an empty map with a small default size.
+   **/
+  public LongIntMap() {
+    this(8);
+  }
+
+  /**
+   *  Returns the number of mappings in the map.
+   **/
+  public int size() {
+    return size + (hasZero ? 1 : 0);
+  }
+
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  /**
+   *  Returns true if "key" is mapped to some value.
+   **/
+  public boolean containsKey(long key) {
+    if (key == FREE) {
+      return hasZero;
+    }
+    return slot(key) >= 0;
+  }
+
+  /**
+   *  Returns the value mapped to "key", or "missing" if there is none.
+   *
+   *  Running time:  O(1) expected.
+   **/
+  public int get(long key, int missing) {
+    if (key == FREE) {
+      return hasZero ? zeroValue : missing;
+    }
+    int i = slot(key);
+    return i >= 0 ? values[i] : missing;
+  }
+
+  /**
+   *  Maps "key" to "value", replacing any previous value.
+   *
+   *  Running time:  O(1) amortized.
+   **/
+  public void put(long key, int value) {
+    if (key == FREE) {
+      hasZero = true;
+      zeroValue = value;
+      return;
+    }
+    int mask = keys.length - 1;
+    int i = mix(key) & mask;
+    long k;
+    while ((k = keys[i]) != FREE) {
+      if (k == key) {
+        values[i] = value;
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = value;
+    if (++size > maxSize(keys.length)) {
+      rehash(keys.length * 2);
+    }
+  }
+
+  /**
+   *  Removes the mapping for "key".  Returns true if there was one.
+   *
+   *  Running time:  O(1) expected.
+   **/
+  public boolean remove(long key) {
+    if (key == FREE) {
+      boolean had = hasZero;
+      hasZero = false;
+      return had;
+    }
+    int i = slot(key);
+    if (i < 0) {
+      return false;
+    }
+    int mask = keys.length - 1;
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      long k = keys[j];
+      if (k == FREE) {
+        break;
+      }
+      int home = mix(k) & mask;
+      // Move k back into the hole at i unless its home lies cyclically in
+      // (i, j], where it would become unreachable.
+      if (((j - home) & mask) >= ((j - i) & mask)) {
+        keys[i] = k;
+        values[i] = values[j];
+        i = j;
+      }
+    }
+    keys[i] = FREE;
+    size--;
+    return true;
+  }
+
+  /**
+   *  Removes all mappings.
+   **/
+  public void makeEmpty() {
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = FREE;
+    }
+    size = 0;
+    hasZero = false;
+  }
+
+  private int slot(long key) {
+    int mask = keys.length - 1;
+    int i = mix(key) & mask;
+    long k;
+    while ((k = keys[i]) != FREE) {
+      if (k == key) {
+        return i;
+      }
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new long[capacity];
+    values = new int[capacity];
+    int mask = capacity - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      long k = oldKeys[j];
+      if (k != FREE) {
+        int i = mix(k) & mask;
+        while (keys[i] != FREE) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = k;
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  private static int maxSize(int capacity) {
+    return capacity - (capacity >>> 2);
+  }
+
+  /**
+   *  mix() hashes a key with Murmur.fmix64().  Both halves of the key reach
+   *  every bit of the result, so keys that pack two ints (as edge keys do)
+   *  spread well.
+   **/
+  private static int mix(long key) {
+    return Murmur.fmix64(key);
+  }
+}
@@ -0,0 +1,29 @@
+/* Murmur.java */
+
+package src.dict;
+
+/**
+ *  Murmur holds the 64-bit finalizer from MurmurHash3, shared by the hash
+ *  functions that pack two ints into one long key (packed vertex ids, or the
+ *  ordered hash codes of a vertex pair).  Every bit of both halves reaches
+ *  every bit of the result, so keys that differ only in their low bits still
+ *  spread across a power-of-two table.
+ **/
+
+public final class Murmur {
+
+  private Murmur() {
+  }
+
+  /**
+   *  fmix64() mixes "k" and folds the result to an int.
+   **/
+  public static int fmix64(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return (int) k;
+  }
+}
@@ -0,0 +1,251 @@
+/* ObjectIntMap.java */
+
+package src.dict;
+
+import java.util.Random;
+
+/**
+ *  ObjectIntMap maps object keys to int values, such as a graph's vertex
+ *  objects to their ids.  Keys must have valid hashCode() and equals()
+ *  methods, as for HashTableChained, and must not be null.
+ *
+ *  Where HashTableChained spends an Entry, a list node and a boxed value on
+ *  every mapping, ObjectIntMap keeps only two flat parallel arrays (keys and
+ *  values) whose length is a power of two, probed linearly from the slot
+ *  chosen by the key's mixed hash code.  remove() shifts later entries of
+ *  the probe run back instead of leaving deleted markers.  A null key slot
+ *  is empty.
+ **/
+
+public class ObjectIntMap {
+
+  protected Object[] keys;
+  protected int[] values;
+  protected int size;
+
+  /**
+   *  Construct an empty map with room for roughly "expected" mappings before
+   *  the arrays grow.
+   **/
+  public ObjectIntMap(int expected) {
+    int capacity = IntIntMap.capacityFor(expected);
+    keys = new Object[capacity];
+    values = new int[capacity];
+  }
+
+  /**
+   *  Construct an empty map with a small default size.
+   **/
+  public ObjectIntMap() {
+    this(8);
+  }
+
+  /**
+   *  Returns the number of mappings in the map.
+   **/
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   *  Returns true if "key" is mapped to some value.
+   **/
+  public boolean containsKey(Object key) {
+    return slot(key) >= 0;
+  }
+
+  /**
+   *  Returns the value mapped to "key", or "missing" if there is none.
+   *
+   *  Running time:  O(1) expected.
+   **/
+  public int get(Object key, int missing) {
+    int i = slot(key);
+    return i >= 0 ? values[i] : missing;
+  }
+
+  /**
+   *  Maps "key" to "value", replacing any previous value.
+   *
+   *  Running time:  O(1) amortized.
+   **/
+  public void put(Object key, int value) {
+    int mask = keys.length - 1;
+    int i = IntIntMap.mix(key.hashCode()) & mask;
+    Object k;
+    while ((k = keys[i]) != null) {
+      if (k == key || k.equals(key)) {
+        values[i] = value;
+        return;
+      }
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = value;
+    if (++size > keys.length - (keys.length >>> 2)) {
+      rehash(keys.length * 2);
+    }
+  }
+
+  /**
+   *  Removes the mapping for "key".  Returns true if there was one.
+   *
+   *  Running time:  O(1) expected.
+   **/
+  public boolean remove(Object key) {
+    int i = slot(key);
+    if (i < 0) {
+      return false;
+    }
+    int mask = keys.length - 1;
+    int j = i;
+    while (true) {
+      j = (j + 1) & mask;
+      Object k = keys[j];
+      if (k == null) {
+        break;
+      }
+      int home = IntIntMap.mix(k.hashCode()) & mask;
+      // Move k back into the hole at i unless its home lies cyclically in
+      // (i, j], where it would become unreachable.
+      if (((j - home) & mask) >= ((j - i) & mask)) {
+        keys[i] = k;
+        values[i] = values[j];
+        i = j;
+      }
+    }
+    keys[i] = null;
+    size--;
+    return true;
+  }
+
+  /**
+   *  Removes all mappings.
+   **/
+  public void makeEmpty() {
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = null;
+    }
+    size = 0;
+  }
+
+  private int slot(Object key) {
+    int mask = keys.length - 1;
+    int i = IntIntMap.mix(key.hashCode()) & mask;
+    Object k;
+    while ((k = keys[i]) != null) {
+      if (k == key || k.equals(key)) {
+        return i;
+      }
+      i = (i + 1) & mask;
+    }
+    return -1;
+  }
+
+  private void rehash(int capacity) {
+    Object[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new Object[capacity];
+    values = new int[capacity];
+    int mask = capacity - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      Object k = oldKeys[j];
+      if (k != null) {
+        int i = IntIntMap.mix(k.hashCode()) & mask;
+        while (keys[i] != null) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = k;
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  /**
+   *  main() is test code.  It runs the same random puts, gets and removes
+   *  against IntIntMap, LongIntMap, ObjectIntMap and a HashTableChained,
+   *  checks that they agree, and then compares the heap each map needs to
+   *  hold a million Integer-keyed mappings.
+   **/
+  public static void main(String[] args) {
+    Random random = new Random(5);
+    IntIntMap ii = new IntIntMap();
+    LongIntMap li = new LongIntMap();
+    ObjectIntMap oi = new ObjectIntMap();
+    HashTableChained ref = new HashTableChained();
+    ref.makeEmpty();
+    boolean ok = true;
+    for (int step = 0; step < 200000 && ok; step++) {
+      int key = random.nextInt(2000) - 1000;         // includes the key zero
+      Integer boxed = Integer.valueOf(key);
+      long wide = ((long) key << 32) | (key & 0xffffL);
+      int op = random.nextInt(3);
+      if (op == 0) {
+        int value = random.nextInt();
+        ii.put(key, value);
+        li.put(wide, value);
+        oi.put(boxed, value);
+        ref.remove(boxed);
+        ref.insert(boxed, Integer.valueOf(value));
+      } else if (op == 1) {
+        boolean had = ref.remove(boxed) != null;
+        ok = ii.remove(key) == had && li.remove(wide) == had &&
+             oi.remove(boxed) == had;
+      } else {
+        Entry e = ref.find(boxed);
+        int expected = e == null ? -1 : ((Integer) e.value()).intValue();
+        ok = ii.get(key, -1) == expected && li.get(wide, -1) == expected &&
+             oi.get(boxed, -1) == expected &&
+             ii.containsKey(key) == (e != null);
+      }
+      ok = ok && ii.size() == ref.size() && li.size() == ref.size() &&
+           oi.size() == ref.size();
+    }
+    System.out.println("Map test " + (ok ? "passed." : "FAILED."));
+
+    int n = 1000000;
+    Integer[] boxedKeys = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      boxedKeys[i] = Integer.valueOf(i);
+    }
+    long before = usedMemory();
+    HashTableChained chained = new HashTableChained(n);
+    chained.makeEmpty();
+    for (int i = 0; i < n; i++) {
+      chained.insert(boxedKeys[i], boxedKeys[i]);
+    }
+    long chainedBytes = usedMemory() - before;
+    chained = null;
+    before = usedMemory();
+    ObjectIntMap flat = new ObjectIntMap(n);
+    for (int i = 0; i < n; i++) {
+      flat.put(boxedKeys[i], i);
+    }
+    long flatBytes = usedMemory() - before;
+    before = usedMemory();
+    IntIntMap ints = new IntIntMap(n);
+    for (int i = 0; i < n; i++) {
+      ints.put(i, i);
+    }
+    long intBytes = usedMemory() - before;
+    System.out.println("Bytes per mapping, keys not counted:  " +
+                       "HashTableChained " + chainedBytes / n +
+                       ", ObjectIntMap " + flatBytes / n +
+                       ", IntIntMap " + intBytes / n + ".");
+    if (flat.size() + ints.size() == 0) {
+      System.out.println();                           // keep both reachable
+    }
+  }
+
+  private static long usedMemory() {
+    Runtime rt = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return rt.totalMemory() - rt.freeMemory();
+  }
+}
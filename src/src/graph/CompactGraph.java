@@ -0,0 +1,111 @@
+/* CompactGraph.java */
+
+package src.graph;
+
+/**
+ * The CompactGraph class is an immutable snapshot of a WUGraph, stored in
+ * compressed-sparse-row (CSR) form.  Vertices are numbered densely from zero
+ * to vertexCount() - 1.  The neighbors of vertex v occupy positions
+ * begin(v) ... end(v) - 1 of the flat target and weight arrays, so a scan of
+ * every adjacency list is a single sequential pass over three int arrays.
+ *
+ * Like the adjacency lists of a WUGraph, every edge (u, v) with u != v is
+ * stored twice (once in the row of u and once in the row of v), and a
+ * self-edge is stored once.  A CompactGraph is obtained by calling
+ * WUGraph.freeze(); later changes to the WUGraph are not reflected in it.
+ */
+
+public class CompactGraph {
+
+  protected final Object[] vertices;
+  protected final int[] offsets;
+  protected final int[] targets;
+  protected final int[] weights;
+  protected final int edgeCount;
+
+  CompactGraph(Object[] vertices, int[] offsets, int[] targets, int[] weights,
+               int edgeCount) {
+    this.vertices = vertices;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+    this.edgeCount = edgeCount;
+  }
+
+  /**
+   * vertexCount() returns the number of vertices in the graph.
+   *
+   * Running time:  O(1).
+   */
+  public int vertexCount() {
+    return vertices.length;
+  }
+
+  /**
+   * edgeCount() returns the number of (undirected) edges in the graph.
+   *
+   * Running time:  O(1).
+   */
+  public int edgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * vertex() returns the object that served as vertex v in the WUGraph this
+   * snapshot was taken from.
+   *
+   * Running time:  O(1).
+   */
+  public Object vertex(int v) {
+    return vertices[v];
+  }
+
+  /**
+   * degree() returns the degree of vertex v.  As in WUGraph, self-edges add
+   * only one to the degree of a vertex.
+   *
+   * Running time:  O(1).
+   */
+  public int degree(int v) {
+    return offsets[v + 1] - offsets[v];
+  }
+
+  /**
+   * begin() returns the position of the first neighbor of vertex v in the
+   * target and weight arrays.
+   *
+   * Running time:  O(1).
+   */
+  public int begin(int v) {
+    return offsets[v];
+  }
+
+  /**
+   * end() returns one past the position of the last neighbor of vertex v in
+   * the target and weight arrays.
+   *
+   * Running time:  O(1).
+   */
+  public int end(int v) {
+    return offsets[v + 1];
+  }
+
+  /**
+   * target() returns the vertex at the far end of the half-edge stored at
+   * position i.
+   *
+   * Running time:  O(1).
+   */
+  public int target(int i) {
+    return targets[i];
+  }
+
+  /**
+   * weight() returns the weight of the half-edge stored at position i.
+   *
+   * Running time:  O(1).
+   */
+  public int weight(int i) {
+    return weights[i];
+  }
+}
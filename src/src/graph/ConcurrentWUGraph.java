@@ -0,0 +1,841 @@
+/* ConcurrentWUGraph.java */
+
+package src.graph;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import src.dict.*;
+import src.list.*;
+
+/**
+ * The ConcurrentWUGraph class is a weighted, undirected graph that many
+ * threads may build and query at once.  Its methods mean exactly what the
+ * Object-based methods of WUGraph mean, and each call takes effect
+ * atomically at some moment between its start and its return, with one
+ * exception noted below for removeVertex().
+ *
+ * There is no lock for the whole graph on the add, remove or query paths.
+ * The vertex dictionary is split into STRIPES HashTableChained tables and
+ * the edge index into STRIPES EdgeIndex tables, chosen by hash code, and
+ * each stripe is its own lock.  Every vertex is the lock of its own
+ * adjacency list.  An edge changes only while both of its endpoints and its
+ * edge stripe are locked, endpoints in id order, so two threads can never
+ * wait on each other.  Threads adding edges between different vertices
+ * therefore run in parallel, and only meet briefly on a shared stripe.
+ *
+ * removeVertex() takes the vertex out of its stripe and marks it removed
+ * while holding both the stripe and the vertex, which is the moment it
+ * takes effect:  from then on no call finds the vertex or its edges, and
+ * addEdge() refuses a removed endpoint it looked up just before.  The
+ * edges are then unlinked one at a time, each under the usual endpoint and
+ * stripe locks.  Until removeVertex() returns, edgeCount() and the degree()
+ * and getNeighbors() of the neighbors may still count the edges not yet
+ * unlinked.  getVertices() and freeze() hold every stripe at once, and
+ * freeze() skips those edges, so both see one consistent graph.
+ *
+ * Vertex ids are handed out from a counter and never reused, so they are
+ * not dense after removals; they are internal, and only freeze() numbers
+ * the vertices densely.
+ */
+
+public class ConcurrentWUGraph {
+
+  private static final int STRIPES = 64;              // a power of two
+
+  private final HashTableChained[] vTables;           // object -> Vertex
+  private final List[] vLists;                  // the Vertices of a stripe
+  private final EdgeIndex[] eTables;                  // packed ids -> Edge
+  private final Object[] stripeLocks;          // vTables, then eTables
+  private final AtomicInteger nextId = new AtomicInteger();
+  private final AtomicInteger vertexCount = new AtomicInteger();
+  private final AtomicInteger edgeCount = new AtomicInteger();
+
+  /**
+   * ConcurrentWUGraph() constructs a graph having no vertices or edges, with
+   * its tables sized up front for "expectedVertices" vertices and
+   * "expectedEdges" edges.
+   */
+  public ConcurrentWUGraph(int expectedVertices, int expectedEdges) {
+    vTables = new HashTableChained[STRIPES];
+    vLists = new List[STRIPES];
+    eTables = new EdgeIndex[STRIPES];
+    stripeLocks = new Object[2 * STRIPES];
+    for (int i = 0; i < STRIPES; i++) {
+      vTables[i] = new HashTableChained(expectedVertices / STRIPES + 1);
+      vTables[i].makeEmpty();
+      vLists[i] = new DList();
+      eTables[i] = new EdgeIndex(expectedEdges / STRIPES + 1);
+      stripeLocks[i] = vTables[i];
+      stripeLocks[STRIPES + i] = eTables[i];
+    }
+  }
+
+  /**
+   * ConcurrentWUGraph() constructs a graph having no vertices or edges.
+   */
+  public ConcurrentWUGraph() {
+    this(STRIPES, STRIPES);
+  }
+
+  /**
+   * vertexCount() returns the number of vertices in the graph.
+   *
+   * Running time:  O(1).
+   */
+  public int vertexCount() {
+    return vertexCount.get();
+  }
+
+  /**
+   * edgeCount() returns the total number of edges in the graph.
+   *
+   * Running time:  O(1).
+   */
+  public int edgeCount() {
+    return edgeCount.get();
+  }
+
+  /**
+   * getVertices() returns an array containing all the objects that serve as
+   * vertices of the graph, as WUGraph.getVertices() does.  Every vertex
+   * stripe is held while they are collected, so additions and removals wait.
+   *
+   * Running time:  O(|V|).
+   */
+  public Object[] getVertices() {
+    return (Object[]) holding(0, STRIPES, new Snapshot() {
+      public Object take() {
+        Object[] output = new Object[vertexCount.get()];
+        int i = 0;
+        for (int s = 0; s < STRIPES; s++) {
+          i = collect(s, output, i, false);
+        }
+        return output;
+      }
+    });
+  }
+
+  /**
+   * addVertex() adds a vertex (with no incident edges) to the graph.  If
+   * "vertex" is already a vertex of the graph, the graph is unchanged; when
+   * several threads add the same object at once, exactly one adds it.
+   *
+   * Running time:  O(1).
+   */
+  public void addVertex(Object vertex) {
+    int s = stripe(vertex.hashCode());
+    HashTableChained t = vTables[s];
+    synchronized (t) {
+      if (t.find(vertex) == null) {
+        Vertex inner = new Vertex(vertex);
+        inner.id = nextId.getAndIncrement();
+        t.insert(vertex, inner);
+        vLists[s].insertBack(inner);
+        inner.internal = vLists[s].back();
+        vertexCount.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * removeVertex() removes a vertex and all its incident edges from the
+   * graph.  If "vertex" is not a vertex of the graph, the graph is
+   * unchanged.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+  public void removeVertex(Object vertex) {
+    HashTableChained t = vTables[stripe(vertex.hashCode())];
+    Vertex inner;
+    try {
+      synchronized (t) {
+        Entry entry = t.find(vertex);
+        if (entry == null) {
+          return;
+        }
+        inner = (Vertex) entry.value();
+        synchronized (inner) {
+          t.remove(vertex);
+          inner.internal.remove();
+          inner.removed = true;
+          vertexCount.decrementAndGet();
+        }
+      }
+      // No edge can join "inner" now, so this loop ends.
+      while (true) {
+        Edge cuEdge;
+        synchronized (inner) {
+          if (inner.adjList.length() == 0) {
+            return;
+          }
+          cuEdge = (Edge) inner.adjList.front().item();
+        }
+        unlink(inner, cuEdge.v2);
+      }
+    } catch (InvalidNodeException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * isVertex() returns true if the parameter "vertex" represents a vertex of
+   * the graph.
+   *
+   * Running time:  O(1).
+   */
+  public boolean isVertex(Object vertex) {
+    return lookup(vertex) != null;
+  }
+
+  /**
+   * degree() returns the degree of a vertex, or zero if "vertex" is not a
+   * vertex of the graph.  Self-edges add only one to the degree.
+   *
+   * Running time:  O(1).
+   */
+  public int degree(Object vertex) {
+    Vertex inner = lookup(vertex);
+    if (inner == null) {
+      return 0;
+    }
+    synchronized (inner) {
+      return inner.removed ? 0 : inner.adjList.length();
+    }
+  }
+
+  /**
+   * getNeighbors() returns a new Neighbors object listing the neighbors of
+   * "vertex" and the weights of the corresponding edges, or null if the
+   * vertex has degree zero or is not a vertex of the graph, as
+   * WUGraph.getNeighbors() does.  The list is the adjacency list as it stood
+   * at one moment; no edge is half added or half removed in it.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+  public Neighbors getNeighbors(Object vertex) {
+    Vertex inner = lookup(vertex);
+    if (inner == null) {
+      return null;
+    }
+    synchronized (inner) {
+      int d = inner.adjList.length();
+      if (inner.removed || d == 0) {
+        return null;
+      }
+      Neighbors output = new Neighbors();
+      output.neighborList = new Object[d];
+      output.weightList = new int[d];
+      ListNode cuNode = inner.adjList.front();
+      try {
+        for (int i = 0; i < d; i++) {
+          Edge cuEdge = (Edge) cuNode.item();
+          output.neighborList[i] = cuEdge.v2.outVertex;
+          output.weightList[i] = cuEdge.weight;
+          cuNode = cuNode.next();
+        }
+      } catch (InvalidNodeException e) {
+        throw new IllegalStateException(e);
+      }
+      return output;
+    }
+  }
+
+  /**
+   * addEdge() adds an edge (u, v) with weight "weight" to the graph, or
+   * updates the weight if the edge is already there.  If either parameter
+   * is not a vertex of the graph, the graph is unchanged.  Self-edges are
+   * allowed.
+   *
+   * Running time:  O(1).
+   */
+  public void addEdge(Object u, Object v, int weight) {
+    Vertex v1 = lookup(u);
+    Vertex v2 = lookup(v);
+    if (v1 == null || v2 == null) {
+      return;
+    }
+    Vertex first = v1.id <= v2.id ? v1 : v2;
+    Vertex second = v1.id <= v2.id ? v2 : v1;
+    long key = EdgeIndex.pack(v1.id, v2.id);
+    EdgeIndex et = eTables[stripe(key)];
+    try {
+      synchronized (first) {
+        synchronized (second) {
+          if (v1.removed || v2.removed) {
+            return;
+          }
+          synchronized (et) {
+            Edge e1 = et.find(key);
+            if (e1 != null) {
+              e1.weight = weight;
+              ((Edge) e1.partner.item()).weight = weight;
+              return;
+            }
+            e1 = new Edge(v1, v2, weight);
+            et.insert(key, e1);
+            if (v1 == v2) {
+              v1.adjList.insertBack(e1);
+              e1.partner = v1.adjList.back();
+            } else {
+              Edge e2 = new Edge(v2, v1, weight);
+              v1.adjList.insertBack(e1);
+              v2.adjList.insertBack(e2);
+              e1.partner = v2.adjList.back();
+              e2.partner = v1.adjList.back();
+            }
+            edgeCount.incrementAndGet();
+          }
+        }
+      }
+    } catch (InvalidNodeException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * removeEdge() removes the edge (u, v) from the graph, if there is one.
+   *
+   * Running time:  O(1).
+   */
+  public void removeEdge(Object u, Object v) {
+    Vertex v1 = lookup(u);
+    Vertex v2 = lookup(v);
+    if (v1 != null && v2 != null) {
+      unlink(v1, v2);
+    }
+  }
+
+  /**
+   * isEdge() returns true if (u, v) is an edge of the graph.
+   *
+   * Running time:  O(1).
+   */
+  public boolean isEdge(Object u, Object v) {
+    return weightOrMissing(u, v, null) != null;
+  }
+
+  /**
+   * weight() returns the weight of (u, v), or zero if (u, v) is not an edge
+   * of the graph.
+   *
+   * Running time:  O(1).
+   */
+  public int weight(Object u, Object v) {
+    int[] weight = new int[1];
+    weightOrMissing(u, v, weight);
+    return weight[0];
+  }
+
+  /**
+   * freeze() returns an immutable CompactGraph holding the current vertices
+   * and edges, as WUGraph.freeze() does, so that the graph built by many
+   * threads can go straight to the MST algorithms.  Every stripe is held
+   * while it is copied, which holds the graph still:  adjacency lists
+   * change only under an edge stripe.  Edges to vertices that a running
+   * removeVertex() has not yet unlinked are left out.
+   *
+   * Running time:  O(|V| + |E|).
+   */
+  public CompactGraph freeze() {
+    return (CompactGraph) holding(0, 2 * STRIPES, new Snapshot() {
+      public Object take() {
+        return copy();
+      }
+    });
+  }
+
+  /**
+   * copy() builds the CompactGraph for freeze().  The caller holds every
+   * stripe.
+   */
+  private CompactGraph copy() {
+    Object[] vertices = new Object[vertexCount.get()];
+    Vertex[] inner = new Vertex[vertices.length];
+    int n = 0;
+    for (int s = 0; s < STRIPES; s++) {
+      n = collect(s, inner, n, true);
+    }
+    int[] offsets = new int[n + 1];
+    try {
+      for (int i = 0; i < n; i++) {
+        inner[i].index = i;
+        vertices[i] = inner[i].outVertex;
+        int d = 0;
+        ListNode eNode = inner[i].adjList.front();
+        while (eNode.isValidNode()) {
+          if (!((Edge) eNode.item()).v2.removed) {
+            d++;
+          }
+          eNode = eNode.next();
+        }
+        offsets[i + 1] = offsets[i] + d;
+      }
+      int[] targets = new int[offsets[n]];
+      int[] weights = new int[offsets[n]];
+      int k = 0;
+      int selfEdges = 0;
+      for (int i = 0; i < n; i++) {
+        ListNode eNode = inner[i].adjList.front();
+        while (eNode.isValidNode()) {
+          Edge cuEdge = (Edge) eNode.item();
+          if (!cuEdge.v2.removed) {
+            targets[k] = cuEdge.v2.index;
+            weights[k++] = cuEdge.weight;
+            if (cuEdge.v2 == inner[i]) {
+              selfEdges++;
+            }
+          }
+          eNode = eNode.next();
+        }
+      }
+      return new CompactGraph(vertices, offsets, targets, weights,
+                              selfEdges + (k - selfEdges) / 2);
+    } catch (InvalidNodeException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * unlink() removes the edge between v1 and v2, if there is one, under
+   * both vertex locks (in id order) and the edge stripe's lock.
+   */
+  private void unlink(Vertex v1, Vertex v2) {
+    Vertex first = v1.id <= v2.id ? v1 : v2;
+    Vertex second = v1.id <= v2.id ? v2 : v1;
+    long key = EdgeIndex.pack(v1.id, v2.id);
+    EdgeIndex et = eTables[stripe(key)];
+    try {
+      synchronized (first) {
+        synchronized (second) {
+          synchronized (et) {
+            Edge e1 = et.remove(key);
+            if (e1 == null) {
+              return;
+            }
+            Edge e2 = (Edge) e1.partner.item();
+            e1.partner.remove();
+            if (e2.partner.isValidNode()) {
+              e2.partner.remove();
+            }
+            edgeCount.decrementAndGet();
+          }
+        }
+      }
+    } catch (InvalidNodeException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * lookup() returns the internal Vertex for "vertex", or null.  The Vertex
+   * may be removed as soon as the stripe is released; callers that change
+   * it check its "removed" flag under its lock.
+   */
+  private Vertex lookup(Object vertex) {
+    HashTableChained t = vTables[stripe(vertex.hashCode())];
+    Entry entry;
+    synchronized (t) {
+      entry = t.find(vertex);
+    }
+    return entry == null ? null : (Vertex) entry.value();
+  }
+
+  /**
+   * weightOrMissing() looks up the edge (u, v) under its stripe's lock, and
+   * returns it, or null if there is none or an endpoint has been removed.
+   * If "weight" is not null, the edge's weight is also stored in weight[0]
+   * before the stripe lock is released, since addEdge() may change it right
+   * after.
+   */
+  private Edge weightOrMissing(Object u, Object v, int[] weight) {
+    Vertex v1 = lookup(u);
+    Vertex v2 = lookup(v);
+    if (v1 == null || v2 == null) {
+      return null;
+    }
+    long key = EdgeIndex.pack(v1.id, v2.id);
+    EdgeIndex et = eTables[stripe(key)];
+    synchronized (et) {
+      Edge e = et.find(key);
+      if (e == null || v1.removed || v2.removed) {
+        return null;
+      }
+      if (weight != null) {
+        weight[0] = e.weight;
+      }
+      return e;
+    }
+  }
+
+  /**
+   * A Snapshot is work done while holding a run of stripe locks.
+   */
+  private interface Snapshot {
+    Object take();
+  }
+
+  /**
+   * holding() locks stripeLocks[i...end-1] in order, runs s.take(), and
+   * returns its result.  The vertex stripes come first, matching the order
+   * removeVertex() uses (vertex stripe, then vertex), and the edge stripes
+   * last, matching addEdge() (vertices, then edge stripe).
+   */
+  private Object holding(int i, int end, Snapshot s) {
+    if (i == end) {
+      return s.take();
+    }
+    synchronized (stripeLocks[i]) {
+      return holding(i + 1, end, s);
+    }
+  }
+
+  /**
+   * collect() copies into out[i...] the vertex objects of one stripe (if
+   * "inner" is false) or its internal Vertices (if true), and returns the
+   * index after the last one written.  The caller holds the stripe's lock.
+   */
+  private int collect(int s, Object[] out, int i, boolean inner) {
+    ListNode cuNode = vLists[s].front();
+    try {
+      while (cuNode.isValidNode()) {
+        Vertex cuV = (Vertex) cuNode.item();
+        out[i++] = inner ? cuV : cuV.outVertex;
+        cuNode = cuNode.next();
+      }
+    } catch (InvalidNodeException e) {
+      throw new IllegalStateException(e);
+    }
+    return i;
+  }
+
+  /**
+   * stripe() picks a stripe from a hash code by Fibonacci hashing:  the top
+   * bits of the product with 2^32 / phi depend on every bit of h.
+   */
+  private static int stripe(int h) {
+    return (h * 0x9e3779b9) >>> (32 - Integer.numberOfTrailingZeros(STRIPES));
+  }
+
+  private static int stripe(long key) {
+    return stripe((int) (key ^ (key >>> 32)));
+  }
+
+  /**
+   * main() is a stress test in three parts.
+   *
+   * First, several threads add the vertices and edges of a random edge
+   * stream, each thread taking the edges whose endpoints hash to it (so a
+   * vertex is added by many threads, but each edge by one) and removing
+   * some of its own edges again, while another thread keeps reading.  Those
+   * edges never interact, so the result must equal a WUGraph that replays
+   * each thread's operations in order; then the threads remove disjoint
+   * sets of vertices at once, and the comparison is repeated.
+   *
+   * Second, the threads race on a few shared vertices:  they add, reweight
+   * and remove the same edges, and remove and re-add the same vertices while
+   * others add edges to them.  No sequential replay predicts the result, so
+   * it is checked for what must hold in any order:  every edge carries a
+   * weight some thread wrote to it, the adjacency lists agree with each
+   * other, with isEdge() and weight(), with the degrees and with the edge
+   * count, and freeze() agrees too.  Then all threads remove every shared
+   * vertex at once, which must leave the graph empty.
+   *
+   * Finally the ingest is timed with one thread and with several, each
+   * given its edges up front; the speedup is bounded by the number of cores.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    final int n = 20000;
+    final int m = 200000;
+    final int numThreads = Math.max(4,
+      Runtime.getRuntime().availableProcessors());
+    Random random = new Random(9);
+    final Object[] names = new Object[n];
+    for (int i = 0; i < n; i++) {
+      names[i] = Integer.valueOf(i);
+    }
+    final int[] u = new int[m];
+    final int[] v = new int[m];
+    final int[] w = new int[m];
+    final boolean[] drop = new boolean[m];
+    for (int i = 0; i < m; i++) {
+      u[i] = random.nextInt(n);
+      v[i] = random.nextInt(i % 50 == 0 ? n : 64);       // hubs contend
+      w[i] = random.nextInt(1000);
+      drop[i] = random.nextInt(10) == 0;
+    }
+
+    WUGraph expected = new WUGraph();
+    for (int t = 0; t < numThreads; t++) {
+      for (int i = 0; i < m; i++) {
+        if (owner(u[i], v[i], numThreads) == t) {
+          expected.addVertex(names[u[i]]);
+          expected.addVertex(names[v[i]]);
+          expected.addEdge(names[u[i]], names[v[i]], w[i]);
+          if (drop[i]) {
+            expected.removeEdge(names[u[i]], names[v[i]]);
+          }
+        }
+      }
+    }
+
+    final ConcurrentWUGraph g = new ConcurrentWUGraph();
+    Thread reader = new Thread() {
+      public void run() {
+        Random r = new Random(1);
+        while (!isInterrupted()) {
+          Object x = names[r.nextInt(n)];
+          Neighbors nb = g.getNeighbors(x);
+          g.isEdge(x, names[r.nextInt(n)]);
+          g.degree(x);
+          if (nb != null && nb.neighborList.length != nb.weightList.length) {
+            System.out.println("Torn neighbor list.");
+          }
+        }
+      }
+    };
+    reader.start();
+    run(numThreads, new Shard() {
+      public void run(int t, int threads) {
+        for (int i = 0; i < m; i++) {
+          if (owner(u[i], v[i], threads) == t) {
+            g.addVertex(names[u[i]]);
+            g.addVertex(names[v[i]]);
+            g.addEdge(names[u[i]], names[v[i]], w[i]);
+            if (drop[i]) {
+              g.removeEdge(names[u[i]], names[v[i]]);
+            }
+          }
+        }
+      }
+    });
+    boolean ok = same(g, expected);
+
+    for (int x = 0; x < n; x += 7) {
+      expected.removeVertex(names[x]);
+    }
+    run(numThreads, new Shard() {
+      public void run(int t, int threads) {
+        for (int x = 7 * t; x < n; x += 7 * threads) {
+          g.removeVertex(names[x]);
+        }
+      }
+    });
+    reader.interrupt();
+    reader.join();
+    ok = ok && same(g, expected);
+    System.out.println("Sharded ingest test " + (ok ? "passed." : "FAILED."));
+
+    ok = race(numThreads);
+    System.out.println("Shared-key race test " +
+                       (ok ? "passed." : "FAILED."));
+
+    for (int round = 0; round < 3; round++) {           // round 0 warms up
+      int threads = round < 2 ? 1 : numThreads;
+      final int[][] shards = new int[threads][];
+      int[] sizes = new int[threads];
+      for (int i = 0; i < m; i++) {
+        sizes[owner(u[i], v[i], threads)]++;
+      }
+      for (int t = 0; t < threads; t++) {
+        shards[t] = new int[sizes[t]];
+        sizes[t] = 0;
+      }
+      for (int i = 0; i < m; i++) {
+        int t = owner(u[i], v[i], threads);
+        shards[t][sizes[t]++] = i;
+      }
+      final ConcurrentWUGraph h = new ConcurrentWUGraph(n, m);
+      long start = System.nanoTime();
+      run(threads, new Shard() {
+        public void run(int t, int all) {
+          int[] mine = shards[t];
+          for (int j = 0; j < mine.length; j++) {
+            int i = mine[j];
+            h.addVertex(names[u[i]]);
+            h.addVertex(names[v[i]]);
+            h.addEdge(names[u[i]], names[v[i]], w[i]);
+          }
+        }
+      });
+      if (round == 0) {
+        continue;
+      }
+      System.out.println(threads + " ingest threads:  " +
+                         (System.nanoTime() - start) / 1000000 + " ms for " +
+                         h.edgeCount() + " edges on " +
+                         Runtime.getRuntime().availableProcessors() +
+                         " cores");
+    }
+  }
+
+  /**
+   * race() runs the shared-key part of main() with "threads" threads, and
+   * returns true if every check passes.
+   */
+  private static boolean race(int threads) throws InterruptedException {
+    final int hubs = 24;
+    final int ops = 40000;
+    final Object[] names = new Object[hubs];
+    for (int i = 0; i < hubs; i++) {
+      names[i] = Integer.valueOf(i);
+    }
+    // Each thread's operations are drawn up front, so that the checker
+    // knows every weight written to every pair.  Weights are unique:
+    // thread t's k-th operation writes t * ops + k.
+    final int[][] kind = new int[threads][ops];
+    final int[][] a = new int[threads][ops];
+    final int[][] b = new int[threads][ops];
+    HashSet<Long> written = new HashSet<Long>();
+    for (int t = 0; t < threads; t++) {
+      Random r = new Random(100 + t);
+      for (int k = 0; k < ops; k++) {
+        int p = r.nextInt(100);
+        kind[t][k] = p < 60 ? 0 : p < 85 ? 1 : p < 90 ? 2 : 3;
+        a[t][k] = r.nextInt(hubs);
+        b[t][k] = r.nextInt(hubs);
+        if (kind[t][k] == 0) {
+          written.add(Long.valueOf(pair(a[t][k], b[t][k], hubs) *
+                                   (long) threads * ops + t * ops + k));
+        }
+      }
+    }
+
+    final ConcurrentWUGraph g = new ConcurrentWUGraph();
+    for (int i = 0; i < hubs; i++) {
+      g.addVertex(names[i]);
+    }
+    final boolean[] torn = new boolean[1];
+    run(threads, new Shard() {
+      public void run(int t, int all) {
+        for (int k = 0; k < ops; k++) {
+          Object x = names[a[t][k]];
+          Object y = names[b[t][k]];
+          switch (kind[t][k]) {
+          case 0:
+            g.addEdge(x, y, t * ops + k);
+            break;
+          case 1:
+            g.removeEdge(x, y);
+            break;
+          case 2:
+            g.removeVertex(x);
+            g.addVertex(x);
+            break;
+          default:
+            Neighbors nb = g.getNeighbors(x);
+            if (nb != null && nb.neighborList.length != nb.weightList.length) {
+              torn[0] = true;
+            }
+            g.weight(x, y);
+          }
+        }
+      }
+    });
+
+    boolean ok = !torn[0] && g.vertexCount() == hubs &&
+                 g.getVertices().length == hubs;
+    int degrees = 0;
+    int selfEdges = 0;
+    for (int i = 0; i < hubs; i++) {
+      Object x = names[i];
+      Neighbors nb = g.getNeighbors(x);
+      int d = nb == null ? 0 : nb.neighborList.length;
+      ok &= g.isVertex(x) && g.degree(x) == d;
+      degrees += d;
+      boolean[] seen = new boolean[hubs];
+      for (int j = 0; j < d; j++) {
+        int y = ((Integer) nb.neighborList[j]).intValue();
+        int wt = nb.weightList[j];
+        ok &= !seen[y] && g.isEdge(x, names[y]) &&
+              g.weight(names[y], x) == wt &&
+              written.contains(Long.valueOf(pair(i, y, hubs) *
+                                            (long) threads * ops + wt));
+        seen[y] = true;
+        if (y == i) {
+          selfEdges++;
+        }
+      }
+      for (int y = 0; y < hubs; y++) {
+        ok &= g.isEdge(x, names[y]) == seen[y];
+      }
+    }
+    CompactGraph c = g.freeze();
+    ok &= degrees + selfEdges == 2 * g.edgeCount() &&
+          c.edgeCount() == g.edgeCount() && c.vertexCount() == hubs;
+
+    run(threads, new Shard() {
+      public void run(int t, int all) {
+        for (int i = 0; i < hubs; i++) {
+          g.removeVertex(names[(i + 5 * t) % hubs]);
+        }
+      }
+    });
+    c = g.freeze();
+    return ok && g.vertexCount() == 0 && g.edgeCount() == 0 &&
+           g.getVertices().length == 0 && c.vertexCount() == 0 &&
+           c.edgeCount() == 0;
+  }
+
+  /**
+   * pair() numbers the unordered pair (x, y) of 0...hubs - 1.
+   */
+  private static int pair(int x, int y, int hubs) {
+    return Math.min(x, y) * hubs + Math.max(x, y);
+  }
+
+  /**
+   * A Shard is the work of thread t out of "threads".
+   */
+  private interface Shard {
+    void run(int t, int threads);
+  }
+
+  private static void run(final int threads, final Shard shard)
+    throws InterruptedException {
+    Thread[] all = new Thread[threads];
+    for (int t = 0; t < threads; t++) {
+      final int id = t;
+      all[t] = new Thread() {
+        public void run() {
+          shard.run(id, threads);
+        }
+      };
+      all[t].start();
+    }
+    for (int t = 0; t < threads; t++) {
+      all[t].join();
+    }
+  }
+
+  private static int owner(int a, int b, int threads) {
+    return (Math.min(a, b) * 31 + Math.max(a, b)) % threads;
+  }
+
+  /**
+   * same() returns true if g and expected have the same vertices, and the
+   * same edges with the same weights.
+   */
+  private static boolean same(ConcurrentWUGraph g, WUGraph expected) {
+    if (g.vertexCount() != expected.vertexCount() ||
+        g.edgeCount() != expected.edgeCount() ||
+        g.getVertices().length != expected.vertexCount()) {
+      return false;
+    }
+    Object[] vertices = expected.getVertices();
+    for (int i = 0; i < vertices.length; i++) {
+      Object x = vertices[i];
+      if (!g.isVertex(x) || g.degree(x) != expected.degree(x)) {
+        return false;
+      }
+      Neighbors nb = expected.getNeighbors(x);
+      for (int j = 0; nb != null && j < nb.neighborList.length; j++) {
+        if (g.weight(x, nb.neighborList[j]) != nb.weightList[j]) {
+          return false;
+        }
+      }
+    }
+    return g.freeze().edgeCount() == expected.edgeCount();
+  }
+}
@@ -0,0 +1,20 @@
+/* EdgeConsumer.java */
+
+package src.graph;
+
+/**
+ * An EdgeConsumer receives the edges of a graph, one call per undirected
+ * edge, from WUGraph.forEachEdge().  Endpoints are given by vertex id.
+ */
+
+public interface EdgeConsumer {
+
+  /**
+   * edge() is called once for each edge of the graph.
+   *
+   * @param u the id of one endpoint of the edge.
+   * @param v the id of the other endpoint; equal to u for a self-edge.
+   * @param weight the weight of the edge.
+   */
+  public void edge(int u, int v, int weight);
+}
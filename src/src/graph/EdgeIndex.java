@@ -0,0 +1,283 @@
+/* EdgeIndex.java */
+
+package src.graph;
+
+import src.dict.*;
+
+/**
+ * The EdgeIndex class maps an unordered pair of vertex ids to the Edge that
+ * joins them.  The pair is packed into a single long (smaller id in the high
+ * word), so a lookup allocates nothing and never calls hashCode() or
+ * equals() on caller objects.
+ *
+ * Keys and values live in two flat parallel arrays whose length is a power
+ * of two.  Collisions are resolved by linear probing.  A removed key leaves
+ * a DELETED marker behind so that probe sequences passing through it stay
+ * intact; markers are reused by later inserts and purged on rehash.
+ */
+
+class EdgeIndex {
+
+  private static final long FREE = -1L;
+  private static final long DELETED = -2L;
+  private static final int MIN_CAPACITY = 8;
+
+  protected long[] keys;
+  protected Edge[] values;
+  protected int size;
+  protected int used;                       // live keys plus DELETED markers
+
+  /**
+   * Construct an empty index with room for roughly "expected" edges before
+   * the first rehash.
+   */
+  EdgeIndex(int expected) {
+    allocate(capacityFor(expected));
+  }
+
+  /**
+   * pack() returns the key for the unordered pair (a, b).  Both ids must be
+   * nonnegative, which keeps every key clear of the FREE and DELETED markers.
+   */
+  static long pack(int a, int b) {
+    if (a > b) {
+      int t = a;
+      a = b;
+      b = t;
+    }
+    return ((long) a << 32) | b;
+  }
+
+  /**
+   * size() returns the number of edges in the index.
+   */
+  int size() {
+    return size;
+  }
+
+  /**
+   * find() returns the Edge stored under "key", or null if there is none.
+   *
+   * Running time:  O(1) expected.
+   */
+  Edge find(long key) {
+    int mask = keys.length - 1;
+    int i = mix(key) & mask;
+    long k;
+    while ((k = keys[i]) != FREE) {
+      if (k == key) {
+        return values[i];
+      }
+      i = (i + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * insert() stores "edge" under "key", replacing any Edge already stored
+   * there.
+   *
+   * Running time:  O(1) amortized.
+   */
+  void insert(long key, Edge edge) {
+    int mask = keys.length - 1;
+    int i = mix(key) & mask;
+    int tomb = -1;
+    long k;
+    while ((k = keys[i]) != FREE) {
+      if (k == key) {
+        values[i] = edge;
+        return;
+      }
+      if (k == DELETED && tomb < 0) {
+        tomb = i;
+      }
+      i = (i + 1) & mask;
+    }
+    if (tomb >= 0) {
+      i = tomb;
+    } else {
+      used++;
+    }
+    keys[i] = key;
+    values[i] = edge;
+    size++;
+    if (used > maxUsed(keys.length)) {
+      rehash(capacityFor(size));
+    }
+  }
+
+  /**
+   * remove() removes the Edge stored under "key" and returns it, or returns
+   * null if there is none.
+   *
+   * Running time:  O(1) expected.
+   */
+  Edge remove(long key) {
+    int mask = keys.length - 1;
+    int i = mix(key) & mask;
+    long k;
+    while ((k = keys[i]) != FREE) {
+      if (k == key) {
+        Edge e = values[i];
+        keys[i] = DELETED;
+        values[i] = null;
+        size--;
+        return e;
+      }
+      i = (i + 1) & mask;
+    }
+    return null;
+  }
+
+  /**
+   * forEach() calls c.edge() once for each edge in the index, with the
+   * smaller endpoint id first, in table order.  The ids come from the key,
+   * so only the weight is read from the Edge.
+   *
+   * Running time:  O(capacity), which is O(size) at the load factor kept.
+   */
+  void forEach(EdgeConsumer c) {
+    for (int i = 0; i < keys.length; i++) {
+      long k = keys[i];
+      if (k >= 0) {
+        c.edge((int) (k >>> 32), (int) k, values[i].weight);
+      }
+    }
+  }
+
+  /**
+   * ensureCapacity() grows the table once so that "expected" edges fit
+   * without any further rehash.
+   */
+  void ensureCapacity(int expected) {
+    if (maxUsed(keys.length) < expected) {
+      rehash(capacityFor(expected));
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new Edge[capacity];
+    for (int i = 0; i < capacity; i++) {
+      keys[i] = FREE;
+    }
+    size = 0;
+    used = 0;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    Edge[] oldValues = values;
+    allocate(capacity);
+    int mask = capacity - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      long k = oldKeys[j];
+      if (k >= 0) {
+        int i = mix(k) & mask;
+        while (keys[i] != FREE) {
+          i = (i + 1) & mask;
+        }
+        keys[i] = k;
+        values[i] = oldValues[j];
+        size++;
+      }
+    }
+    used = size;
+  }
+
+  /**
+   * Load factor is held at or below 3/4, counting DELETED markers.
+   */
+  private static int maxUsed(int capacity) {
+    return capacity - (capacity >>> 2);
+  }
+
+  private static int capacityFor(int expected) {
+    int capacity = MIN_CAPACITY;
+    while (maxUsed(capacity) < expected + 1) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  /**
+   * mix() hashes a key with Murmur.fmix64().  Packed ids differ mostly in
+   * their low bits, so a strong mixer is needed before masking.
+   */
+  private static int mix(long key) {
+    return Murmur.fmix64(key);
+  }
+
+  /**
+   * main() compares this index with the HashTableChained/VertexPair edge
+   * table it replaced, on a grid-shaped graph of Integer vertices.
+   */
+  public static void main(String[] args) {
+    int side = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+    int n = side * side;
+    Integer[] objs = new Integer[n];
+    Vertex[] verts = new Vertex[n];
+    for (int i = 0; i < n; i++) {
+      objs[i] = Integer.valueOf(i);
+      verts[i] = new Vertex(objs[i]);
+      verts[i].id = i;
+    }
+    Runtime rt = Runtime.getRuntime();
+
+    System.gc();
+    long before = rt.totalMemory() - rt.freeMemory();
+    long start = System.nanoTime();
+    HashTableChained chained = new HashTableChained(8);
+    chained.makeEmpty();
+    int edges = 0;
+    for (int i = 0; i < n; i++) {
+      if (i % side + 1 < side) {
+        chained.insert(new VertexPair(objs[i], objs[i + 1]),
+                       new Edge(verts[i], verts[i + 1], 1));
+        edges++;
+      }
+      if (i + side < n) {
+        chained.insert(new VertexPair(objs[i], objs[i + side]),
+                       new Edge(verts[i], verts[i + side], 1));
+        edges++;
+      }
+    }
+    for (int i = 0; i + side < n; i++) {
+      chained.find(new VertexPair(objs[i + side], objs[i]));
+    }
+    long chainedTime = System.nanoTime() - start;
+    System.gc();
+    long chainedBytes = rt.totalMemory() - rt.freeMemory() - before;
+
+    System.gc();
+    before = rt.totalMemory() - rt.freeMemory();
+    start = System.nanoTime();
+    EdgeIndex index = new EdgeIndex(8);
+    for (int i = 0; i < n; i++) {
+      if (i % side + 1 < side) {
+        index.insert(pack(i, i + 1), new Edge(verts[i], verts[i + 1], 1));
+      }
+      if (i + side < n) {
+        index.insert(pack(i, i + side),
+                     new Edge(verts[i], verts[i + side], 1));
+      }
+    }
+    for (int i = 0; i + side < n; i++) {
+      index.find(pack(i + side, i));
+    }
+    long indexTime = System.nanoTime() - start;
+    System.gc();
+    long indexBytes = rt.totalMemory() - rt.freeMemory() - before;
+
+    System.out.println(edges + " edges (Edge objects included in both).");
+    System.out.println("HashTableChained: " + chainedTime / 1000000 + " ms, " +
+                       chainedBytes / edges + " bytes/edge");
+    System.out.println("EdgeIndex:        " + indexTime / 1000000 + " ms, " +
+                       indexBytes / edges + " bytes/edge");
+    if (index.size() != chained.size()) {
+      System.out.println("Size mismatch: " + index.size() + " vs " +
+                         chained.size());
+    }
+  }
+}
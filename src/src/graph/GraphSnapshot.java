@@ -0,0 +1,326 @@
+/* GraphSnapshot.java */
+
+package src.graph;
+
+import java.lang.ref.WeakReference;
+import java.util.Random;
+
+import src.dict.*;
+
+/**
+ * A GraphSnapshot is a read-only view of a WUGraph as it stood when
+ * WUGraph.snapshot() returned it.  Later changes to the graph are never
+ * seen through it, and any number of threads may read it at once, without
+ * locks, while the graph keeps changing.
+ *
+ * A new snapshot holds only a reference to its graph.  It is turned into a
+ * CompactGraph copy exactly once, by the writer just before its next change
+ * or by the first reader, whichever comes first; both go through the same
+ * monitor, so the copy is always taken from the right state.  After that
+ * the snapshot drops the graph and every read is a volatile load followed
+ * by plain array accesses.
+ */
+
+public class GraphSnapshot {
+
+  private WUGraph source;                      // null once compact is set
+  private volatile CompactGraph compact;
+  private volatile ObjectIntMap index;         // vertex object -> row
+
+  GraphSnapshot(WUGraph source) {
+    this.source = source;
+  }
+
+  /**
+   * compact() returns the CompactGraph holding this snapshot's vertices and
+   * edges, making it first if need be.  Vertex v of it is the v-th object
+   * returned by getVertices().
+   *
+   * Running time:  O(1), except for the first call on a snapshot whose
+   * graph has not changed since:  O(|V| + |E|).
+   */
+  public CompactGraph compact() {
+    CompactGraph c = compact;
+    if (c == null) {
+      synchronized (this) {
+        c = compact;
+        if (c == null) {
+          c = source.copy();
+          compact = c;
+          source = null;
+        }
+      }
+    }
+    return c;
+  }
+
+  /**
+   * vertexCount() returns the number of vertices in the snapshot.
+   */
+  public int vertexCount() {
+    return compact().vertexCount();
+  }
+
+  /**
+   * edgeCount() returns the number of edges in the snapshot.
+   */
+  public int edgeCount() {
+    return compact().edgeCount();
+  }
+
+  /**
+   * getVertices() returns a new array of the objects that serve as vertices
+   * in the snapshot.
+   *
+   * Running time:  O(|V|).
+   */
+  public Object[] getVertices() {
+    CompactGraph c = compact();
+    Object[] output = new Object[c.vertexCount()];
+    for (int v = 0; v < output.length; v++) {
+      output[v] = c.vertex(v);
+    }
+    return output;
+  }
+
+  /**
+   * isVertex() returns true if "vertex" is a vertex of the snapshot.
+   *
+   * Running time:  O(1), after an O(|V|) index is built on the first
+   * Object-based query.
+   */
+  public boolean isVertex(Object vertex) {
+    return row(vertex) >= 0;
+  }
+
+  /**
+   * degree() returns the degree of "vertex" in the snapshot, or zero if it
+   * is not a vertex.
+   *
+   * Running time:  O(1).
+   */
+  public int degree(Object vertex) {
+    int v = row(vertex);
+    return v < 0 ? 0 : compact.degree(v);
+  }
+
+  /**
+   * getNeighbors() returns a new Neighbors object listing the neighbors of
+   * "vertex" in the snapshot, as WUGraph.getNeighbors() does:  null if the
+   * vertex has degree zero or is not a vertex of the snapshot.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+  public Neighbors getNeighbors(Object vertex) {
+    int v = row(vertex);
+    if (v < 0 || compact.degree(v) == 0) {
+      return null;
+    }
+    CompactGraph c = compact;
+    Neighbors output = new Neighbors();
+    output.neighborList = new Object[c.degree(v)];
+    output.weightList = new int[c.degree(v)];
+    for (int i = c.begin(v), j = 0; i < c.end(v); i++, j++) {
+      output.neighborList[j] = c.vertex(c.target(i));
+      output.weightList[j] = c.weight(i);
+    }
+    return output;
+  }
+
+  /**
+   * isEdge() returns true if (u, v) is an edge of the snapshot.
+   *
+   * Running time:  O(min(degree(u), degree(v))).
+   */
+  public boolean isEdge(Object u, Object v) {
+    return position(u, v) >= 0;
+  }
+
+  /**
+   * weight() returns the weight of (u, v) in the snapshot, or zero if it is
+   * not an edge.
+   *
+   * Running time:  O(min(degree(u), degree(v))).
+   */
+  public int weight(Object u, Object v) {
+    int i = position(u, v);
+    return i < 0 ? 0 : compact.weight(i);
+  }
+
+  /**
+   * position() returns the position in the target and weight arrays of a
+   * half-edge joining u and v, scanning the shorter row, or -1.
+   */
+  private int position(Object u, Object v) {
+    int a = row(u);
+    int b = row(v);
+    if (a < 0 || b < 0) {
+      return -1;
+    }
+    CompactGraph c = compact;
+    if (c.degree(a) > c.degree(b)) {
+      int t = a;
+      a = b;
+      b = t;
+    }
+    for (int i = c.begin(a); i < c.end(a); i++) {
+      if (c.target(i) == b) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * row() returns the vertex number of "vertex" in compact(), or -1.
+   */
+  private int row(Object vertex) {
+    ObjectIntMap m = index;
+    if (m == null) {
+      CompactGraph c = compact();
+      m = new ObjectIntMap(c.vertexCount());
+      for (int v = 0; v < c.vertexCount(); v++) {
+        m.put(c.vertex(v), v);
+      }
+      index = m;                      // racing builders build equal maps
+    }
+    return m.get(vertex, -1);
+  }
+
+  /**
+   * main() is a stress test.  One writer keeps adding and removing edges and
+   * vertices, publishing a snapshot every few hundred changes together with
+   * the vertex and edge counts at that moment, while reader threads check
+   * each snapshot they pick up:  its counts must match, and every edge must
+   * appear in the rows of both endpoints with the same weight.  Some of the
+   * changes are addEdges() batches, which may rehash the edge table.  Then
+   * it checks that a batch large enough to rehash leaves an earlier snapshot
+   * as it was, and, last, that a copy nobody holds any more is reclaimed.
+   */
+  public static void main(String[] args) throws InterruptedException {
+    final int n = 2000;
+    final Integer[] names = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      names[i] = Integer.valueOf(i);
+    }
+    final WUGraph g = new WUGraph();
+    final Object[] published = new Object[3];  // snapshot, |V|, |E|
+    final boolean[] failed = new boolean[1];
+    final int[] checked = new int[1];
+    final boolean[] done = new boolean[1];
+
+    Thread[] readers = new Thread[3];
+    for (int r = 0; r < readers.length; r++) {
+      readers[r] = new Thread() {
+        public void run() {
+          while (true) {
+            Object[] p;
+            synchronized (published) {
+              if (done[0]) {
+                return;
+              }
+              p = published.clone();
+            }
+            if (p[0] != null && !consistent((GraphSnapshot) p[0],
+                                            ((Integer) p[1]).intValue(),
+                                            ((Integer) p[2]).intValue())) {
+              failed[0] = true;
+            }
+            synchronized (published) {
+              checked[0]++;
+            }
+          }
+        }
+      };
+      readers[r].start();
+    }
+
+    Random random = new Random(13);
+    for (int step = 0; step < 200000; step++) {
+      int op = random.nextInt(100);
+      Integer a = names[random.nextInt(n)];
+      Integer b = names[random.nextInt(n)];
+      if (op < 2) {
+        g.removeVertex(a);
+      } else if (op < 58) {
+        g.addVertex(a);
+        g.addVertex(b);
+        g.addEdge(a, b, random.nextInt(100));
+      } else if (op < 60) {
+        Object[] us = new Object[16];
+        Object[] vs = new Object[16];
+        int[] ws = new int[16];
+        for (int i = 0; i < ws.length; i++) {
+          us[i] = names[random.nextInt(n)];
+          vs[i] = names[random.nextInt(n)];
+          ws[i] = random.nextInt(100);
+          g.addVertex(us[i]);
+          g.addVertex(vs[i]);
+        }
+        g.addEdges(us, vs, ws);
+      } else {
+        g.removeEdge(a, b);
+      }
+      if (step % 500 == 0) {
+        GraphSnapshot s = g.snapshot();
+        synchronized (published) {
+          published[0] = s;
+          published[1] = Integer.valueOf(g.vertexCount());
+          published[2] = Integer.valueOf(g.edgeCount());
+        }
+      }
+    }
+    synchronized (published) {
+      done[0] = true;
+    }
+    for (int r = 0; r < readers.length; r++) {
+      readers[r].join();
+    }
+
+    GraphSnapshot s = g.snapshot();
+    int vertices = g.vertexCount();
+    int edges = g.edgeCount();
+    Object[] us = new Object[4 * n];
+    Object[] vs = new Object[4 * n];
+    int[] ws = new int[4 * n];
+    for (int i = 0; i < ws.length; i++) {
+      us[i] = names[random.nextInt(n)];
+      vs[i] = names[random.nextInt(n)];
+      ws[i] = random.nextInt(100);
+    }
+    g.addEdges(us, vs, ws);                      // grows the edge table
+    boolean batchOk = g.edgeCount() > edges && consistent(s, vertices, edges);
+
+    WeakReference<CompactGraph> copy =
+      new WeakReference<CompactGraph>(s.compact());
+    s = null;
+    g.addVertex(names[0]);
+    g.removeVertex(names[0]);                // drops the graph's reference
+    for (int i = 0; i < 5 && copy.get() != null; i++) {
+      System.gc();
+    }
+    boolean ok = !failed[0] && batchOk && copy.get() == null;
+    System.out.println(checked[0] + " snapshots checked; snapshot test " +
+                       (ok ? "passed." : "FAILED."));
+  }
+
+  private static boolean consistent(GraphSnapshot s, int vertices,
+                                    int edges) {
+    if (s.vertexCount() != vertices || s.edgeCount() != edges) {
+      return false;
+    }
+    CompactGraph c = s.compact();
+    int halfEdges = 0;
+    for (int v = 0; v < c.vertexCount(); v++) {
+      for (int i = c.begin(v); i < c.end(v); i++) {
+        Object u = c.vertex(v);
+        Object x = c.vertex(c.target(i));
+        halfEdges += u == x ? 2 : 1;
+        if (s.weight(x, u) != c.weight(i)) {
+          return false;
+        }
+      }
+    }
+    return halfEdges == 2 * edges;
+  }
+}
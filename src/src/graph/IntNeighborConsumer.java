@@ -0,0 +1,21 @@
+/* IntNeighborConsumer.java */
+
+package src.graph;
+
+/**
+ * An IntNeighborConsumer receives the neighbors of a vertex, one call per
+ * incident edge, from WUGraph.forEachNeighborById().
+ * Neighbors are given by vertex id.
+ */
+
+public interface IntNeighborConsumer {
+
+  /**
+   * neighbor() is called once for each edge incident on the vertex being
+   * visited.
+   *
+   * @param id the id of the vertex at the other end of the edge.
+   * @param weight the weight of the edge.
+   */
+  public void neighbor(int id, int weight);
+}
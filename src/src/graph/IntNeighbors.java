@@ -0,0 +1,17 @@
+/* IntNeighbors.java */
+
+package src.graph;
+
+/**
+ * The IntNeighbors class is the id-based counterpart of Neighbors:  it lets
+ * WUGraph.neighborsOf() return two arrays at once.  neighborList holds vertex
+ * ids rather than the objects supplied to addVertex().
+ *
+ * Since this class is NOT an abstract data type, but is merely a collection of
+ * data, all fields are public.
+ */
+
+public class IntNeighbors {
+  public int[] neighborList;
+  public int[] weightList;
+}
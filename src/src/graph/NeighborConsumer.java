@@ -0,0 +1,21 @@
+/* NeighborConsumer.java */
+
+package src.graph;
+
+/**
+ * A NeighborConsumer receives the neighbors of a vertex, one call per
+ * incident edge, from WUGraph.forEachNeighbor().
+ */
+
+public interface NeighborConsumer {
+
+  /**
+   * neighbor() is called once for each edge incident on the vertex being
+   * visited.
+   *
+   * @param vertex the object at the other end of the edge, as supplied to
+   *        addVertex().
+   * @param weight the weight of the edge.
+   */
+  public void neighbor(Object vertex, int weight);
+}
@@ -6,6 +6,9 @@ class Vertex {
 	protected Object outVertex;
 	protected ListNode internal;
 	protected List adjList;
+	protected int id;	// dense id, reused after the vertex is removed
+	protected int index;	// position in the most recent WUGraph.freeze()
+	protected volatile boolean removed;	// set by ConcurrentWUGraph.removeVertex()
 	
 	public Vertex(Object o) {
 		outVertex = o;
@@ -2,6 +2,8 @@
 
 package src.graph;
 
+import src.dict.Murmur;
+
 /**
  * The VertexPair represents a pair of objects that act as vertices in a
  * WUGraph (weighted, undirected graph).  The purpose of a VertexPair is to
@@ -20,19 +22,31 @@ class VertexPair {
   }
 
   /**
-   * hashCode() returns a hashCode equal to the sum of the hashCodes of each
-   * of the two objects of the pair, so that the order of the objects will
-   * not affect the hashCode.  Self-edges are treated differently:  we don't
-   * add an object's hashCode to itself, since the result would always be even.
-   * We add one to the hashCode so that a self-edge will not collide with the
-   * object itself if vertices and edges are stored in the same hash table.
+   * hashCode() orders the hashCodes of the two objects, packs the smaller and
+   * the larger into one long, and mixes it with the MurmurHash3 finalizer,
+   * so that the order of the objects will not affect the hashCode.  (The sum
+   * of the two hashCodes, used before, is symmetric too, but with sequential
+   * Integer vertices every pair with the same sum collides:  (1, 4), (2, 3)
+   * and (0, 5) all hash to 5, and the n(n - 1) / 2 edges of a complete graph
+   * share just 2n - 3 hashCodes.)
+   *
+   * The mix is not better everywhere.  On a grid of sequential Integers the
+   * sum happens to be perfect:  every edge has a different sum, and all the
+   * sums are below the bucket count, so no two edges share a bucket.  The
+   * mix spreads those edges like random keys instead, and main() shows the
+   * cost at 180k edges:  bucket use falls from 74% to 52%, the longest chain
+   * grows from 1 to 7, and 53k entries collide.  That is the price of
+   * spreading every input the same way.  The sum is only good when the
+   * vertex numbering lines up with the graph's shape.  It gives the complete
+   * graph chains of 300 in under 1% of the buckets, and random Integer pairs
+   * chains of 10.  The mix stays at about 52% use and chains of 7 or 8 in
+   * all four cases, as uniform hashing predicts at this load.
    */
   public int hashCode() {
-    if (object1.equals(object2)) {
-      return object1.hashCode() + 1;
-    } else {
-      return object1.hashCode() + object2.hashCode();
-    }
+    int h1 = object1.hashCode();
+    int h2 = object2.hashCode();
+    return Murmur.fmix64(((long) Math.min(h1, h2) << 32) |
+                         (Math.max(h1, h2) & 0xffffffffL));
   }
 
   /**
@@ -50,4 +64,93 @@ class VertexPair {
       return false;
     }
   }
+
+  /**
+   * main() fills a HashTableChained with the edges of a grid, a complete
+   * graph and a random graph on Integer vertices, and of a random graph on
+   * plain Objects (which have identity hashCodes), once keyed with the old
+   * sum hash and once with the mixed hash, and prints the chain report of
+   * each.  The grid is the one case where the sum hash wins.
+   */
+  public static void main(String[] args) {
+    java.util.Random random = new java.util.Random(1);
+    int side = 300;
+    int n = side * side;
+    Object[] integers = new Object[n];
+    Object[] objects = new Object[n];
+    for (int i = 0; i < n; i++) {
+      integers[i] = Integer.valueOf(i);
+      objects[i] = new Object();
+    }
+    int m = 2 * side * (side - 1);
+    int[] gridU = new int[m];
+    int[] gridV = new int[m];
+    int e = 0;
+    for (int r = 0; r < side; r++) {
+      for (int c = 0; c < side; c++) {
+        if (c + 1 < side) {
+          gridU[e] = r * side + c;
+          gridV[e++] = r * side + c + 1;
+        }
+        if (r + 1 < side) {
+          gridU[e] = r * side + c;
+          gridV[e++] = (r + 1) * side + c;
+        }
+      }
+    }
+    int k = 600;
+    int[] fullU = new int[k * (k - 1) / 2];
+    int[] fullV = new int[fullU.length];
+    e = 0;
+    for (int a = 0; a < k; a++) {
+      for (int b = a + 1; b < k; b++) {
+        fullU[e] = a;
+        fullV[e++] = b;
+      }
+    }
+    int[] randU = new int[m];
+    int[] randV = new int[m];
+    for (int i = 0; i < m; i++) {
+      randU[i] = random.nextInt(n);
+      randV[i] = random.nextInt(n);
+    }
+    report("grid, Integer vertices", integers, gridU, gridV);
+    report("complete, Integer vertices", integers, fullU, fullV);
+    report("random, Integer vertices", integers, randU, randV);
+    report("random, Object vertices", objects, randU, randV);
+  }
+
+  private static void report(String name, Object[] vertices,
+                             int[] u, int[] v) {
+    src.dict.HashTableChained sum = new src.dict.HashTableChained(u.length);
+    src.dict.HashTableChained mixed = new src.dict.HashTableChained(u.length);
+    sum.makeEmpty();
+    mixed.makeEmpty();
+    for (int i = 0; i < u.length; i++) {
+      Object a = vertices[u[i]];
+      Object b = vertices[v[i]];
+      sum.insert(new SumPair(a, b), null);
+      mixed.insert(new VertexPair(a, b), null);
+    }
+    System.out.println(name + ":");
+    System.out.println("  sum hash:    " + sum.chainReport());
+    System.out.println("  mixed hash:  " + mixed.chainReport());
+  }
+
+  /**
+   * SumPair is a VertexPair with the old sum hash, kept for main().
+   */
+  private static class SumPair extends VertexPair {
+    SumPair(Object o1, Object o2) {
+      super(o1, o2);
+    }
+
+    public int hashCode() {
+      if (object1.equals(object2)) {
+        return object1.hashCode() + 1;
+      } else {
+        return object1.hashCode() + object2.hashCode();
+      }
+    }
+  }
 }
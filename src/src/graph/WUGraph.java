@@ -8,24 +8,53 @@ import src.list.*;
 /**
  * The WUGraph class represents a weighted, undirected graph.  Self-edges are
  * permitted.
+ *
+ * Every vertex is also given a dense int id when it is added.  The id stays
+ * the same for as long as the vertex is in the graph, and may be handed out
+ * again after the vertex is removed.  The methods whose names end in ById,
+ * and neighborsOf(), take ids instead of vertex objects, and skip the vertex
+ * dictionary (and the hashCode() and equals() calls on the caller's objects)
+ * entirely; the Object-based methods are thin wrappers that resolve their
+ * arguments once and then take the id path.  The id methods have names of
+ * their own so that an int can never be mistaken for an Integer vertex.
  */
 
 public class WUGraph {
 
-  protected HashTableChained vTable;
-  protected HashTableChained eTable;
+  protected ObjectIntMap vTable;
+  protected EdgeIndex eTable;
   protected List vList;
+  protected Vertex[] vArray;
+  protected int nextId;
+  protected int[] freeIds;
+  protected int freeCount;
+  protected GraphSnapshot pending;	// handed out, not yet materialized
   /**
    * WUGraph() constructs a graph having no vertices or edges.
    *
    * Running time:  O(1).
    */
   public WUGraph() {
-	  vTable = new HashTableChained(4);
-	  vTable.makeEmpty();
-	  eTable = new HashTableChained(8);
-	  eTable.makeEmpty();
+	  vTable = new ObjectIntMap(4);
+	  eTable = new EdgeIndex(8);
 	  vList = new DList();
+	  vArray = new Vertex[4];
+	  freeIds = new int[4];
+  }
+
+  /**
+   * WUGraph() constructs a graph having no vertices or edges, with its tables
+   * sized up front for "expectedVertices" vertices and "expectedEdges" edges.
+   * A graph loaded within those bounds never resizes a table.
+   *
+   * Running time:  O(expectedVertices + expectedEdges).
+   */
+  public WUGraph(int expectedVertices, int expectedEdges) {
+	  vTable = new ObjectIntMap(expectedVertices);
+	  eTable = new EdgeIndex(expectedEdges);
+	  vList = new DList();
+	  vArray = new Vertex[Math.max(expectedVertices, 4)];
+	  freeIds = new int[4];
   }
 
   /**
@@ -46,6 +75,17 @@ public class WUGraph {
 	  return eTable.size();
   }
 
+  /**
+   * idCapacity() returns one more than the largest vertex id handed out so
+   * far.  Every id of a vertex currently in the graph lies in the range
+   * 0...idCapacity() - 1, so arrays of that length can be indexed by id.
+   *
+   * Running time:  O(1).
+   */
+  public int idCapacity() {
+	  return nextId;
+  }
+
   /**
    * getVertices() returns an array containing all the objects that serve
    * as vertices of the graph.  The array's length is exactly equal to the
@@ -69,9 +109,29 @@ public class WUGraph {
 			output[i++] = cuV.outVertex;
 			cuNode = cuNode.next();
 		} catch (InvalidNodeException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			throw new IllegalStateException(e);
+		}
+	}
+	return output;
+  }
+
+  /**
+   * getVertexIds() returns an array containing the ids of all the vertices
+   * of the graph, in the same order as getVertices().
+   *
+   * Running time:  O(|V|).
+   */
+  public int[] getVertexIds() {
+	int[] output = new int[this.vertexCount()];
+	ListNode cuNode = vList.front();
+	int i = 0;
+	try {
+		while(cuNode.isValidNode()) {
+			output[i++] = ((Vertex) cuNode.item()).id;
+			cuNode = cuNode.next();
 		}
+	} catch (InvalidNodeException e) {
+		throw new IllegalStateException(e);
 	}
 	return output;
   }
@@ -81,15 +141,61 @@ public class WUGraph {
    * The vertex's "name" is the object provided as the parameter "vertex".
    * If this object is already a vertex of the graph, the graph is unchanged.
    *
+   * @return the id of the vertex, whether it was just added or was already
+   *         in the graph.
+   *
    * Running time:  O(1).
    */
-  public void addVertex(Object vertex) {
-	if(vTable.find(vertex)==null) {
-		Vertex inner = new Vertex(vertex);
-		vTable.insert(vertex, inner);
-		vList.insertBack(inner);
-		inner.internal = vList.back();
+  public int addVertex(Object vertex) {
+	int id = vTable.get(vertex, -1);
+	if(id>=0) {
+		return id;
 	}
+	this.beforeChange();
+	Vertex inner = new Vertex(vertex);
+	inner.id = this.allocateId();
+	vArray[inner.id] = inner;
+	vTable.put(vertex, inner.id);
+	vList.insertBack(inner);
+	inner.internal = vList.back();
+	return inner.id;
+  }
+
+  /**
+   * idOf() returns the id of the vertex named by "vertex", or -1 if the
+   * object is not a vertex of the graph.
+   *
+   * Running time:  O(1).
+   */
+  public int idOf(Object vertex) {
+	  return vTable.get(vertex, -1);
+  }
+
+  /**
+   * vertexOf() returns the object that names the vertex with id "id", or
+   * null if no vertex currently has that id.
+   *
+   * Running time:  O(1).
+   */
+  public Object vertexOf(int id) {
+	  Vertex inner = this.vertex(id);
+	  if(inner!=null) {
+		  return inner.outVertex;
+	  } else {
+		  return null;
+	  }
+  }
+
+  /**
+   * vertex() returns the internal Vertex with id "id", or null if there is
+   * none.
+   */
+  Vertex vertex(int id) {
+	  if(id>=0&&id<nextId) {
+		  return vArray[id];
+	  } else {
+		  return null;
+	  }
   }
 
   /**
@@ -100,30 +206,68 @@ public class WUGraph {
    * Running time:  O(d), where d is the degree of "vertex".
    */
   public void removeVertex(Object vertex) {
-	  Entry vEntry = vTable.remove(vertex);
-	  if(vEntry != null) {
-		  Vertex inner = (Vertex) vEntry.value();
+	  int id = this.idOf(vertex);
+	  if(id>=0) {
+		  this.removeVertexById(id);
+	  }
+  }
+
+  /**
+   * removeVertexById() removes the vertex with id "id", if there is one,
+   * with all its edges.
+   */
+  private void removeVertexById(int id) {
+	  Vertex inner = this.vertex(id);
+	  if(inner != null) {
+		  this.beforeChange();
+		  vTable.remove(inner.outVertex);
 		  List eList = inner.adjList;
 		  ListNode cuNode = eList.front();
 		  Edge cuEdge;
 		  while(cuNode.isValidNode()) {
 			  try {
 				cuEdge = (Edge) cuNode.item();
-				eTable.remove(new VertexPair(cuEdge.v1.outVertex,cuEdge.v2.outVertex));
+				eTable.remove(EdgeIndex.pack(cuEdge.v1.id, cuEdge.v2.id));
 				cuNode = cuNode.next();
 				cuEdge.partner.remove();
 			} catch (InvalidNodeException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+				throw new IllegalStateException(e);
 			}
 		  }
 		  try {
 			inner.internal.remove();
 		} catch (InvalidNodeException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			throw new IllegalStateException(e);
 		}
+		  vArray[id] = null;
+		  this.releaseId(id);
+	  }
+  }
+
+  /**
+   * allocateId() returns a free vertex id:  the most recently released one
+   * if any, otherwise the next unused one.  Ids thus stay dense, which keeps
+   * packed edge keys small and vArray short.
+   */
+  private int allocateId() {
+	  if(freeCount > 0) {
+		  return freeIds[--freeCount];
+	  }
+	  if(nextId == vArray.length) {
+		  Vertex[] grown = new Vertex[vArray.length * 2];
+		  System.arraycopy(vArray, 0, grown, 0, nextId);
+		  vArray = grown;
+	  }
+	  return nextId++;
+  }
+
+  private void releaseId(int id) {
+	  if(freeCount == freeIds.length) {
+		  int[] grown = new int[freeIds.length * 2];
+		  System.arraycopy(freeIds, 0, grown, 0, freeCount);
+		  freeIds = grown;
 	  }
+	  freeIds[freeCount++] = id;
   }
 
   /**
@@ -133,7 +277,7 @@ public class WUGraph {
    * Running time:  O(1).
    */
   public boolean isVertex(Object vertex) {
-	  return (vTable.find(vertex)!=null);
+	  return vTable.containsKey(vertex);
   }
 
   /**
@@ -144,9 +288,18 @@ public class WUGraph {
    * Running time:  O(1).
    */
   public int degree(Object vertex) {
-	  Entry vEntry = vTable.find(vertex);
-	  if(vEntry!=null) {
-		  Vertex inner = (Vertex) vEntry.value();
+	  return this.degreeById(this.idOf(vertex));
+  }
+
+  /**
+   * degreeById() returns the degree of the vertex with id "id", or zero if no
+   * vertex has that id.
+   *
+   * Running time:  O(1).
+   */
+  public int degreeById(int id) {
+	  Vertex inner = this.vertex(id);
+	  if(inner!=null) {
 		  return inner.adjList.length();
 	  } else {
 		  return 0;
@@ -172,29 +325,166 @@ public class WUGraph {
    * Running time:  O(d), where d is the degree of "vertex".
    */
   public Neighbors getNeighbors(Object vertex) {
-	  int d = this.degree(vertex);
-	  if(d==0) {
+	  Vertex inner = this.vertex(this.idOf(vertex));
+	  if(inner==null||inner.adjList.length()==0) {
 		  return null;
-	  } else {
-		  Neighbors output = new Neighbors();
-		  output.neighborList = new Object[d];
-		  output.weightList = new int[d];
-		  Vertex inner = (Vertex) vTable.find(vertex).value();
-		  ListNode cuNode = inner.adjList.front();
-		  Edge cuEdge;
+	  }
+	  int d = inner.adjList.length();
+	  Neighbors output = new Neighbors();
+	  output.neighborList = new Object[d];
+	  output.weightList = new int[d];
+	  ListNode cuNode = inner.adjList.front();
+	  Edge cuEdge;
+	  for(int i=0; i<d;i++) {
+		  try {
+			cuEdge = (Edge) cuNode.item();
+			output.neighborList[i] = cuEdge.v2.outVertex;
+			output.weightList[i] = cuEdge.weight;
+			cuNode = cuNode.next();
+		} catch (InvalidNodeException e) {
+			throw new IllegalStateException(e);
+		}
+	  }
+	  return output;
+  }
+
+  /**
+   * getNeighbors() fills the arrays of the caller's Neighbors object "reuse"
+   * with the neighbors of "vertex" and the weights of the corresponding
+   * edges, and returns the degree of the vertex.  Only the first degree
+   * entries of each array are meaningful.  An array is replaced by a larger
+   * one only if it is null or too short, so a traversal that passes the same
+   * Neighbors object for every vertex allocates nothing once the arrays have
+   * grown to the largest degree.  If "vertex" is not a vertex of the graph,
+   * zero is returned and "reuse" is unchanged.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+  public int getNeighbors(Object vertex, Neighbors reuse) {
+	  Vertex inner = this.vertex(this.idOf(vertex));
+	  if(inner==null) {
+		  return 0;
+	  }
+	  int d = inner.adjList.length();
+	  if(reuse.neighborList==null||reuse.neighborList.length<d) {
+		  reuse.neighborList = new Object[d];
+	  }
+	  if(reuse.weightList==null||reuse.weightList.length<d) {
+		  reuse.weightList = new int[d];
+	  }
+	  ListNode cuNode = inner.adjList.front();
+	  Edge cuEdge;
+	  try {
 		  for(int i=0; i<d;i++) {
-			  try {
-				cuEdge = (Edge) cuNode.item();
-				output.neighborList[i] = cuEdge.v2.outVertex;
-				output.weightList[i] = cuEdge.weight;
-				cuNode = cuNode.next();
-			} catch (InvalidNodeException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
+			  cuEdge = (Edge) cuNode.item();
+			  reuse.neighborList[i] = cuEdge.v2.outVertex;
+			  reuse.weightList[i] = cuEdge.weight;
+			  cuNode = cuNode.next();
+		  }
+	  } catch (InvalidNodeException e) {
+		  throw new IllegalStateException(e);
+	  }
+	  return d;
+  }
+
+  /**
+   * forEachNeighbor() calls c.neighbor() once for each edge incident on
+   * "vertex", passing the object at the other end and the edge's weight, in
+   * the order getNeighbors() would list them.  Nothing is allocated.  If
+   * "vertex" is not a vertex of the graph, c is never called.
+   *
+   * The graph must not be changed from within c.
+   *
+   * Running time:  O(d), where d is the degree of "vertex".
+   */
+  public void forEachNeighbor(Object vertex, NeighborConsumer c) {
+	  Vertex inner = this.vertex(this.idOf(vertex));
+	  if(inner==null) {
+		  return;
+	  }
+	  ListNode cuNode = inner.adjList.front();
+	  Edge cuEdge;
+	  try {
+		  while(cuNode.isValidNode()) {
+			  cuEdge = (Edge) cuNode.item();
+			  c.neighbor(cuEdge.v2.outVertex, cuEdge.weight);
+			  cuNode = cuNode.next();
+		  }
+	  } catch (InvalidNodeException e) {
+		  throw new IllegalStateException(e);
+	  }
+  }
+
+  /**
+   * forEachNeighborById() is the id counterpart of forEachNeighbor():  it
+   * passes the ids of the neighbors of the vertex with id "id".
+   *
+   * Running time:  O(d), where d is the degree of the vertex.
+   */
+  public void forEachNeighborById(int id, IntNeighborConsumer c) {
+	  Vertex inner = this.vertex(id);
+	  if(inner==null) {
+		  return;
+	  }
+	  ListNode cuNode = inner.adjList.front();
+	  Edge cuEdge;
+	  try {
+		  while(cuNode.isValidNode()) {
+			  cuEdge = (Edge) cuNode.item();
+			  c.neighbor(cuEdge.v2.id, cuEdge.weight);
+			  cuNode = cuNode.next();
+		  }
+	  } catch (InvalidNodeException e) {
+		  throw new IllegalStateException(e);
+	  }
+  }
+
+  /**
+   * forEachEdge() calls c.edge() exactly once for each edge of the graph,
+   * passing the ids of its endpoints (smaller first) and its weight.  The
+   * edges are read straight from the edge table, so unlike a walk over the
+   * adjacency lists it sees each undirected edge once and needs no
+   * bookkeeping to skip the second copy.  The order is unspecified.
+   *
+   * The graph must not be changed from within c.
+   *
+   * Running time:  O(|E|).
+   */
+  public void forEachEdge(EdgeConsumer c) {
+	  eTable.forEach(c);
+  }
+
+  /**
+   * neighborsOf() is the id counterpart of getNeighbors():  it returns a new
+   * IntNeighbors object whose neighborList holds the ids of the neighbors of
+   * the vertex with id "id", in the same order getNeighbors() would list
+   * them.  If the vertex has degree zero, or no vertex has that id, null is
+   * returned.
+   *
+   * Running time:  O(d), where d is the degree of the vertex.
+   */
+  public IntNeighbors neighborsOf(int id) {
+	  Vertex inner = this.vertex(id);
+	  if(inner==null||inner.adjList.length()==0) {
+		  return null;
+	  }
+	  int d = inner.adjList.length();
+	  IntNeighbors output = new IntNeighbors();
+	  output.neighborList = new int[d];
+	  output.weightList = new int[d];
+	  ListNode cuNode = inner.adjList.front();
+	  Edge cuEdge;
+	  try {
+		  for(int i=0; i<d;i++) {
+			  cuEdge = (Edge) cuNode.item();
+			  output.neighborList[i] = cuEdge.v2.id;
+			  output.weightList[i] = cuEdge.weight;
+			  cuNode = cuNode.next();
 		  }
-		  return output;
+	  } catch (InvalidNodeException e) {
+		  throw new IllegalStateException(e);
 	  }
+	  return output;
   }
 
   /**
@@ -207,30 +497,39 @@ public class WUGraph {
    * Running time:  O(1).
    */
   public void addEdge(Object u, Object v, int weight) {
-	  if(this.isVertex(u)&&this.isVertex(v)) {
-		  VertexPair uv = new VertexPair(u,v);
-		  Entry eEntry = eTable.find(uv);
-		  if(eEntry!=null) {
-			  Edge e1 = (Edge) eEntry.value();
+	  this.addEdgeById(this.idOf(u), this.idOf(v), weight);
+  }
+
+  /**
+   * addEdgeById() adds an edge between the vertices with ids u and v, as
+   * addEdge() does.  If either id does not belong to a vertex of the graph,
+   * the graph is unchanged.
+   *
+   * Running time:  O(1).
+   */
+  public void addEdgeById(int u, int v, int weight) {
+	  Vertex v1 = this.vertex(u);
+	  Vertex v2 = this.vertex(v);
+	  if(v1!=null&&v2!=null) {
+		  this.beforeChange();
+		  long uv = EdgeIndex.pack(u, v);
+		  Edge e1 = eTable.find(uv);
+		  if(e1!=null) {
 			  e1.weight = weight;
 			  try {
 				Edge e2 = (Edge) e1.partner.item();
 				e2.weight = weight;
 			} catch (InvalidNodeException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+				throw new IllegalStateException(e);
 			}
 		  } else {
-			  if(u.equals(v)) {
-				  Vertex v1 = (Vertex) vTable.find(u).value();
-				  Edge e1 = new Edge(v1,v1,weight);
+			  if(v1 == v2) {
+				  e1 = new Edge(v1,v1,weight);
 				  eTable.insert(uv, e1);
 				  v1.adjList.insertBack(e1);
 				  e1.partner = v1.adjList.back();
 			  } else {
-				  Vertex v1 = (Vertex) vTable.find(u).value();
-				  Vertex v2 = (Vertex) vTable.find(v).value();
-				  Edge e1 = new Edge(v1,v2,weight);
+				  e1 = new Edge(v1,v2,weight);
 				  Edge e2 = new Edge(v2,v1,weight);
 				  eTable.insert(uv, e1);
 				  v1.adjList.insertBack(e1);
@@ -239,7 +538,39 @@ public class WUGraph {
 				  e2.partner = v1.adjList.back();
 			  }
 		  }
+	  }
+  }
 
+  /**
+   * addEdges() adds the edges (u[i], v[i]) with weights w[i], for every i,
+   * exactly as if addEdge() were called on each triple in turn:  pairs that
+   * name a non-vertex are skipped, and if a pair appears more than once
+   * (in the batch or already in the graph) the last weight wins.
+   *
+   * The edge table is grown at most once, before any edge is inserted, and
+   * runs of consecutive entries with the same endpoint object resolve that
+   * object only once.
+   *
+   * Running time:  O(n), where n is the length of the arrays.
+   */
+  public void addEdges(Object[] u, Object[] v, int[] w) {
+	  if(w.length == 0) {
+		  return;
+	  }
+	  this.beforeChange();	// before the table is rehashed under a snapshot
+	  eTable.ensureCapacity(eTable.size() + w.length);
+	  Object lastU = null, lastV = null;
+	  int uId = -1, vId = -1;
+	  for(int i = 0; i < w.length; i++) {
+		  if(u[i] != lastU || i == 0) {
+			  lastU = u[i];
+			  uId = this.idOf(lastU);
+		  }
+		  if(v[i] != lastV || i == 0) {
+			  lastV = v[i];
+			  vId = this.idOf(lastV);
+		  }
+		  this.addEdgeById(uId, vId, w[i]);
 	  }
   }
 
@@ -252,24 +583,39 @@ public class WUGraph {
    * Running time:  O(1).
    */
   public void removeEdge(Object u, Object v) {
-	  if(this.isVertex(u)&&this.isVertex(v)) {
-		  VertexPair uv = new VertexPair(u,v);
-		  Entry eEntry = eTable.find(uv);
-		  if(eEntry!=null) {
-			  Edge e1 = (Edge) eEntry.value();
-			  try {
-				Edge e2 = (Edge) e1.partner.item(); 
-				e1.partner.remove();
-				if(e2.partner.isValidNode()) {
-					e2.partner.remove();
-				}
-			} catch (InvalidNodeException e11) {
-				// TODO Auto-generated catch block
-				e11.printStackTrace();
+	  this.removeEdgeById(this.idOf(u), this.idOf(v));
+  }
+
+  /**
+   * removeEdgeById() removes the edge between the vertices with ids u and v,
+   * if there is one.
+   */
+  private void removeEdgeById(int u, int v) {
+	  Edge e1 = this.findEdge(u, v);
+	  if(e1!=null) {
+		  this.beforeChange();
+		  try {
+			Edge e2 = (Edge) e1.partner.item(); 
+			e1.partner.remove();
+			if(e2.partner.isValidNode()) {
+				e2.partner.remove();
 			}
-			  eTable.remove(uv);
-		  }
+		} catch (InvalidNodeException e11) {
+			throw new IllegalStateException(e11);
+		}
+		  eTable.remove(EdgeIndex.pack(u, v));
+	  }
+  }
+
+  /**
+   * findEdge() returns the internal Edge joining the vertices with ids u and
+   * v, or null if either id is not in use or there is no such edge.
+   */
+  private Edge findEdge(int u, int v) {
+	  if(this.vertex(u)==null||this.vertex(v)==null) {
+		  return null;
 	  }
+	  return eTable.find(EdgeIndex.pack(u, v));
   }
 
   /**
@@ -280,13 +626,7 @@ public class WUGraph {
    * Running time:  O(1).
    */
   public boolean isEdge(Object u, Object v) {
-	  boolean result = false;
-	  if(this.isVertex(u)&&this.isVertex(v)) {
-		  if(eTable.find(new VertexPair(u,v))!=null) {
-			  result = true;
-		  }
-	  }
-	  return result;
+	  return this.findEdge(this.idOf(u), this.idOf(v))!=null;
   }
 
   /**
@@ -304,11 +644,116 @@ public class WUGraph {
    * Running time:  O(1).
    */
   public int weight(Object u, Object v) {
-	  if(this.isEdge(u, v)) {
-		  Edge e = (Edge) eTable.find(new VertexPair(u,v)).value();
+	  return this.weightById(this.idOf(u), this.idOf(v));
+  }
+
+  /**
+   * weightById() returns the weight of the edge between the vertices with ids
+   * u and v, or zero if there is no such edge.
+   *
+   * Running time:  O(1).
+   */
+  public int weightById(int u, int v) {
+	  Edge e = this.findEdge(u, v);
+	  if(e!=null) {
 		  return e.weight;
 	  } else {
 		  return 0;
 	  }
   }
+
+  /**
+   * freeze() returns an immutable CompactGraph holding the current vertices
+   * and edges of the graph in compressed-sparse-row form.  Vertex i of the
+   * snapshot is the i-th object returned by getVertices(), and the neighbors
+   * of each vertex appear in the same order as in getNeighbors().  The graph
+   * itself is not changed, and later changes to it do not affect the
+   * snapshot.
+   *
+   * If a snapshot() taken since the last change has already been copied,
+   * its copy is returned.
+   *
+   * Running time:  O(|V| + |E|).
+   */
+  public CompactGraph freeze() {
+	  if(pending != null) {
+		  return pending.compact();
+	  }
+	  return this.copy();
+  }
+
+  /**
+   * snapshot() returns a read-only view of the graph as it is now, which
+   * other threads may read without locks while this graph keeps changing.
+   *
+   * Taking a snapshot costs O(1):  it copies nothing.  The copy (a
+   * CompactGraph) is made only once, by whichever comes first of the next
+   * change to the graph and the first read of the snapshot, and every
+   * snapshot taken between two changes shares it.  A copy belongs only to
+   * its snapshots, so it is reclaimed by the garbage collector as soon as
+   * no reader holds one.  A graph that is snapshotted often but changed
+   * rarely, or changed often but snapshotted rarely, thus pays little.
+   *
+   * snapshot() and all changes to the graph must be called from one
+   * (writer) thread; the snapshots may be read from any thread.
+   *
+   * Running time:  O(1), plus O(|V| + |E|) for the first change after it.
+   */
+  public GraphSnapshot snapshot() {
+	  if(pending == null) {
+		  pending = new GraphSnapshot(this);
+	  }
+	  return pending;
+  }
+
+  /**
+   * beforeChange() is called by every method that changes the graph, just
+   * before the change.  If a snapshot is still waiting for its copy, the
+   * copy is made now, from the state the snapshot stands for.
+   */
+  private void beforeChange() {
+	  if(pending != null) {
+		  pending.compact();
+		  pending = null;
+	  }
+  }
+
+  /**
+   * copy() builds the CompactGraph that freeze() returns.
+   */
+  CompactGraph copy() {
+	  int n = this.vertexCount();
+	  Object[] vertices = new Object[n];
+	  int[] offsets = new int[n + 1];
+	  int[] targets = null;
+	  int[] weights = null;
+	  try {
+		  ListNode cuNode = vList.front();
+		  for(int i = 0; i < n; i++) {
+			  Vertex cuV = (Vertex) cuNode.item();
+			  cuV.index = i;
+			  vertices[i] = cuV.outVertex;
+			  offsets[i+1] = offsets[i] + cuV.adjList.length();
+			  cuNode = cuNode.next();
+		  }
+		  targets = new int[offsets[n]];
+		  weights = new int[offsets[n]];
+		  int k = 0;
+		  cuNode = vList.front();
+		  while(cuNode.isValidNode()) {
+			  ListNode eNode = ((Vertex) cuNode.item()).adjList.front();
+			  while(eNode.isValidNode()) {
+				  Edge cuEdge = (Edge) eNode.item();
+				  targets[k] = cuEdge.v2.index;
+				  weights[k++] = cuEdge.weight;
+				  eNode = eNode.next();
+			  }
+			  cuNode = cuNode.next();
+		  }
+	  } catch (InvalidNodeException e) {
+		  throw new IllegalStateException(e);
+	  }
+	  return new CompactGraph(vertices, offsets, targets, weights,
+	                          this.edgeCount());
+  }
 }
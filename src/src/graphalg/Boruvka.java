@@ -0,0 +1,360 @@
+/* Boruvka.java */
+
+package src.graphalg;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import src.graph.*;
+import src.set.*;
+
+/**
+ * The Boruvka class contains the method minSpanTree(), which computes a
+ * minimum spanning tree with Boruvka's algorithm, running the expensive
+ * steps of each round in parallel on a ForkJoinPool.
+ *
+ * Each round, every component picks the cheapest edge leaving it; all those
+ * edges join the tree at once, which at least halves the number of
+ * components, and edges that now lie inside one component are dropped.  All
+ * four steps are split across the pool:  picking "cheapest" is a lock-free
+ * compare-and-set minimum per component, and hooking and relabelling go
+ * through a ConcurrentDisjointSets.
+ *
+ * Ties are broken by edge index (see EdgeList), which makes the order on
+ * edges total.  The minimum spanning tree is unique under that order, so the
+ * result has exactly the same edges as Kruskal.minSpanTree() with the RADIX
+ * ordering (or any other stable ordering of the same CompactGraph), whatever
+ * the weights and however the work is scheduled.  The default
+ * Kruskal.minSpanTree(WUGraph) is not stable:  it Heapsorts the edges in
+ * edge-table order.  When weights repeat it may pick a different tree, of
+ * the same total weight; when they are distinct, all of them agree.
+ */
+
+public class Boruvka {
+
+  private static final int GRAIN = 1 << 13;        // edges per leaf task
+
+  private final EdgeList edges;
+  private final int n;
+  private final int[] comp;           // comp[v] is the root of v's component
+  private final AtomicIntegerArray best;
+  private final ConcurrentDisjointSets ds;
+  private final int[] tree;
+  private final AtomicInteger treeSize = new AtomicInteger();
+  private int[] live;                 // indices of edges between components
+  private int liveCount;
+
+  private Boruvka(CompactGraph c) {
+    edges = new EdgeList(c);
+    n = c.vertexCount();
+    comp = new int[n];
+    for (int v = 0; v < n; v++) {
+      comp[v] = v;
+    }
+    best = new AtomicIntegerArray(n);
+    ds = new ConcurrentDisjointSets(n);
+    tree = new int[Math.max(n - 1, 0)];
+    live = new int[edges.size];
+    for (int e = 0; e < edges.size; e++) {
+      live[e] = e;
+    }
+    liveCount = edges.size;
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the WUGraph g, using the common ForkJoinPool.  The tree has the same
+   * edges as Kruskal.minSpanTree(g, Kruskal.RADIX).  The original WUGraph g
+   * is NOT changed.
+   *
+   * @param g The weighted, undirected graph whose MST we want to compute.
+   * @return A newly constructed WUGraph representing the MST of g.
+   */
+  public static WUGraph minSpanTree(WUGraph g) {
+    return minSpanTree(g.freeze(), ForkJoinPool.commonPool());
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the CompactGraph c, doing the parallel work on "pool".
+   *
+   * @param c The compact snapshot whose MST we want to compute.
+   * @param pool The pool that runs the edge scans.
+   * @return A newly constructed WUGraph representing the MST of c.
+   */
+  public static WUGraph minSpanTree(CompactGraph c, ForkJoinPool pool) {
+    Boruvka b = new Boruvka(c);
+    int[] tree = b.run(pool);
+    WUGraph t = new WUGraph(b.n, b.n);
+    for (int u = 0; u < b.n; u++) {
+      t.addVertex(c.vertex(u));                   // t's id of c.vertex(u) is u
+    }
+    for (int i = 0; i < tree.length; i++) {
+      int e = tree[i];
+      t.addEdgeById(b.edges.from[e], b.edges.to[e], b.edges.weight[e]);
+    }
+    return t;
+  }
+
+  /**
+   * run() performs the Boruvka rounds and returns the indices of the tree
+   * edges, in increasing order.
+   */
+  private int[] run(ForkJoinPool pool) {
+    while (liveCount > 0) {
+      pool.invoke(new VertexPass(RESET, 0, n));
+      pool.invoke(new Cheapest(0, liveCount));
+      pool.invoke(new VertexPass(HOOK, 0, n));
+      pool.invoke(new VertexPass(RELABEL, 0, n));
+      filter(pool);
+    }
+    int[] result = new int[treeSize.get()];
+    System.arraycopy(tree, 0, result, 0, result.length);
+    Arrays.sort(result);
+    return result;
+  }
+
+  /**
+   * offer() lowers best[c] to edge e if e is lighter than the edge there.
+   */
+  private void offer(int c, int e) {
+    while (true) {
+      int cur = best.get(c);
+      if (cur >= 0 && !lighter(e, cur)) {
+        return;
+      }
+      if (best.compareAndSet(c, cur, e)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * lighter() returns true if edge a precedes edge b:  by weight, then by
+   * index.
+   */
+  private boolean lighter(int a, int b) {
+    int wa = edges.weight[a];
+    int wb = edges.weight[b];
+    return wa < wb || (wa == wb && a < b);
+  }
+
+  /**
+   * filter() keeps only the live edges whose endpoints are in different
+   * components, preserving their order.  Each chunk of GRAIN edges is
+   * counted in parallel, the counts are turned into offsets, and the chunks
+   * are then copied in parallel.
+   */
+  private void filter(ForkJoinPool pool) {
+    int chunks = (liveCount + GRAIN - 1) / GRAIN;
+    int[] offsets = new int[chunks + 1];
+    pool.invoke(new Filter(0, chunks, offsets, null));
+    for (int k = 0; k < chunks; k++) {
+      offsets[k + 1] += offsets[k];
+    }
+    int[] kept = new int[offsets[chunks]];
+    pool.invoke(new Filter(0, chunks, offsets, kept));
+    live = kept;
+    liveCount = kept.length;
+  }
+
+  private boolean crossing(int e) {
+    return comp[edges.from[e]] != comp[edges.to[e]];
+  }
+
+  /**
+   * Cheapest offers every live edge in live[lo...hi-1] to the components at
+   * both of its ends.
+   */
+  private class Cheapest extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final int lo, hi;
+
+    Cheapest(int lo, int hi) {
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    protected void compute() {
+      if (hi - lo <= GRAIN) {
+        for (int i = lo; i < hi; i++) {
+          int e = live[i];
+          int cu = comp[edges.from[e]];
+          int cv = comp[edges.to[e]];
+          if (cu != cv) {
+            offer(cu, e);
+            offer(cv, e);
+          }
+        }
+      } else {
+        int mid = (lo + hi) >>> 1;
+        invokeAll(new Cheapest(lo, mid), new Cheapest(mid, hi));
+      }
+    }
+  }
+
+  private static final int RESET = 0;
+  private static final int HOOK = 1;
+  private static final int RELABEL = 2;
+
+  /**
+   * VertexPass runs one per-vertex step over vertices lo...hi-1.
+   *
+   * RESET clears best[].  HOOK unites the two ends of each component's
+   * cheapest edge; the edges chosen in one round form a forest (the order
+   * on edges is total), so each distinct edge merges two sets exactly once,
+   * and an edge chosen from both of its sides gets false from union() the
+   * second time.  RELABEL points comp[] at the new roots.
+   */
+  private class VertexPass extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final int step, lo, hi;
+
+    VertexPass(int step, int lo, int hi) {
+      this.step = step;
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    protected void compute() {
+      if (hi - lo > GRAIN) {
+        int mid = (lo + hi) >>> 1;
+        invokeAll(new VertexPass(step, lo, mid), new VertexPass(step, mid, hi));
+        return;
+      }
+      for (int v = lo; v < hi; v++) {
+        if (step == RESET) {
+          best.set(v, -1);
+        } else if (step == HOOK) {
+          int e = best.get(v);
+          if (e >= 0 && ds.union(edges.from[e], edges.to[e])) {
+            tree[treeSize.getAndIncrement()] = e;
+          }
+        } else {
+          comp[v] = ds.find(v);
+        }
+      }
+    }
+  }
+
+  /**
+   * Filter handles chunks lo...hi-1 of the live edges.  With no output
+   * array it stores the number of crossing edges of chunk k in offsets[k+1];
+   * with one it copies those edges to output, starting at offsets[k].
+   */
+  private class Filter extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+    private final int lo, hi;
+    private final int[] offsets;
+    private final int[] output;
+
+    Filter(int lo, int hi, int[] offsets, int[] output) {
+      this.lo = lo;
+      this.hi = hi;
+      this.offsets = offsets;
+      this.output = output;
+    }
+
+    protected void compute() {
+      if (hi - lo <= 0) {
+        return;
+      }
+      if (hi - lo > 1) {
+        int mid = (lo + hi) >>> 1;
+        invokeAll(new Filter(lo, mid, offsets, output),
+                  new Filter(mid, hi, offsets, output));
+        return;
+      }
+      int start = lo * GRAIN;
+      int end = Math.min(start + GRAIN, liveCount);
+      if (output == null) {
+        int count = 0;
+        for (int i = start; i < end; i++) {
+          if (crossing(live[i])) {
+            count++;
+          }
+        }
+        offsets[lo + 1] = count;
+      } else {
+        int pos = offsets[lo];
+        for (int i = start; i < end; i++) {
+          if (crossing(live[i])) {
+            output[pos++] = live[i];
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * main() is a check and a benchmark.  First it compares Boruvka's tree
+   * with Kruskal's, edge for edge, on 300 small random graphs with weights in
+   * -3...3, self-edges, and vertex ids recycled by removals.  Then it builds
+   * a large random graph with many duplicate weights, checks the tree again,
+   * and times Boruvka on pools of increasing size.
+   *
+   * Usage:  java src.graphalg.Boruvka [vertices] [edges]
+   */
+  public static void main(String[] args) {
+    Random small = new Random(1);
+    int agree = 0;
+    for (int trial = 0; trial < 300; trial++) {
+      int vertices = 1 + small.nextInt(60);
+      WUGraph h = new WUGraph();
+      for (int i = 0; i < vertices; i++) {
+        h.addVertex(Integer.valueOf(i));
+      }
+      for (int i = 0; i < vertices / 4; i++) {           // ids get reused
+        h.removeVertex(Integer.valueOf(small.nextInt(vertices)));
+        h.addVertex(Integer.valueOf(vertices + i));
+      }
+      Object[] vs = h.getVertices();
+      for (int i = small.nextInt(4 * vertices + 1); i > 0; i--) {
+        h.addEdge(vs[small.nextInt(vs.length)], vs[small.nextInt(vs.length)],
+                  small.nextInt(7) - 3);
+      }
+      if (Kruskal.sameEdges(minSpanTree(h),
+                            Kruskal.minSpanTree(h, Kruskal.RADIX)) &&
+          Kruskal.minSpanTreeResult(h).totalWeight ==
+          Kruskal.minSpanTreeResult(h.freeze(), Kruskal.RADIX).totalWeight) {
+        agree++;
+      }
+    }
+    System.out.println("Boruvka matches Kruskal (radix) on " + agree +
+                       " of 300 small graphs.");
+
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    int m = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+    Random random = new Random(0);
+    WUGraph g = new WUGraph(n, m);
+    for (int i = 0; i < n; i++) {
+      g.addVertex(Integer.valueOf(i));
+    }
+    for (int i = 0; i < m; i++) {
+      g.addEdgeById(random.nextInt(n), random.nextInt(n), random.nextInt(100));
+    }
+    CompactGraph c = g.freeze();
+
+    Kruskal.minSpanTree(c, Kruskal.RADIX);                       // warm up
+    long start = System.nanoTime();
+    WUGraph k = Kruskal.minSpanTree(c, Kruskal.RADIX);
+    System.out.println("Kruskal (radix): " +
+                       (System.nanoTime() - start) / 1000000 + " ms");
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (int p = 1; p <= cores; p *= 2) {
+      ForkJoinPool pool = new ForkJoinPool(p);
+      minSpanTree(c, pool);                                      // warm up
+      start = System.nanoTime();
+      WUGraph t = minSpanTree(c, pool);
+      long ms = (System.nanoTime() - start) / 1000000;
+      pool.shutdown();
+      System.out.println("Boruvka, " + p + " threads: " + ms + " ms" +
+                         (Kruskal.sameEdges(t, k) ? "" :
+                          "  (TREE DIFFERS FROM KRUSKAL)"));
+    }
+  }
+}
@@ -0,0 +1,145 @@
+/* EdgeHeap.java */
+
+package src.graphalg;
+
+import java.util.Random;
+
+import src.graph.*;
+
+/**
+ * An EdgeHeap is a binary min-heap of the edges of an EdgeList, ordered by
+ * weight and then by index.  It is built bottom-up (Floyd's method) in O(E)
+ * time, after which each removeMin() costs O(log E).  When only the lightest
+ * k edges are ever needed, the total cost is O(E + k log E) instead of the
+ * O(E log E) of a full sort.
+ */
+
+class EdgeHeap {
+
+  private final EdgeList edges;
+  private final int[] heap;
+  private int size;
+
+  /**
+   * Construct a heap holding every edge of "edges".
+   *
+   * Running time:  O(E).
+   */
+  EdgeHeap(EdgeList edges) {
+    this.edges = edges;
+    size = edges.size;
+    heap = new int[size];
+    for (int e = 0; e < size; e++) {
+      heap[e] = e;
+    }
+    for (int p = size / 2 - 1; p >= 0; p--) {
+      siftDown(p);
+    }
+  }
+
+  /**
+   * removeMin() removes the lightest edge from the heap and returns its
+   * index.  The heap must not be empty.
+   *
+   * Running time:  O(log E).
+   */
+  int removeMin() {
+    int min = heap[0];
+    heap[0] = heap[--size];
+    siftDown(0);
+    return min;
+  }
+
+  private void siftDown(int p) {
+    int e = heap[p];
+    while (true) {
+      int child = 2 * p + 1;
+      if (child >= size) {
+        break;
+      }
+      if (child + 1 < size && lighter(heap[child + 1], heap[child])) {
+        child++;
+      }
+      if (!lighter(heap[child], e)) {
+        break;
+      }
+      heap[p] = heap[child];
+      p = child;
+    }
+    heap[p] = e;
+  }
+
+  private boolean lighter(int a, int b) {
+    int wa = edges.weight[a];
+    int wb = edges.weight[b];
+    return wa < wb || (wa == wb && a < b);
+  }
+
+  /**
+   * main() checks Kruskal's LAZY ordering, which is built on this heap.  On
+   * random graphs (few or many distinct weights, self-edges, several
+   * pieces) the LAZY tree must have exactly the RADIX tree's edges, and
+   * the two must take the same number of edges from their orderings, since
+   * both break ties by index.  On a graph whose tree is a path of light
+   * edges among many heavy ones, LAZY must stop after exactly V - 1
+   * removals.  Last, it reports how many of 2M uniformly weighted edges
+   * LAZY removes on a random graph of 100k vertices.
+   */
+  public static void main(String[] args) {
+    Random random = new Random(9);
+    boolean ok = true;
+    for (int trial = 0; trial < 30; trial++) {
+      int n = 10 + random.nextInt(2000);
+      int weights = trial % 3 == 0 ? 4 : 1 << 20;
+      int pieces = trial % 3 == 2 ? 1 + random.nextInt(3) : 1;
+      WUGraph g = randomGraph(random, n, 5 * n, weights, pieces);
+      CompactGraph c = g.freeze();
+      KruskalStats lazy = new KruskalStats();
+      KruskalStats radix = new KruskalStats();
+      ok &= Kruskal.sameEdges(Kruskal.minSpanTree(c, Kruskal.LAZY, lazy),
+                              Kruskal.minSpanTree(c, Kruskal.RADIX, radix));
+      ok &= lazy.extracted == radix.extracted &&
+            lazy.edgeCount == radix.edgeCount &&
+            lazy.extracted <= lazy.edgeCount;
+    }
+
+    int n = 20000;
+    WUGraph g = randomGraph(random, n, 20 * n, 1 << 20, 1);
+    for (int i = 0; i + 1 < n; i++) {
+      g.addEdgeById(i, i + 1, -(1 << 20) - random.nextInt(100));
+    }
+    KruskalStats stats = new KruskalStats();
+    Kruskal.minSpanTree(g.freeze(), Kruskal.LAZY, stats);
+    ok &= stats.extracted == n - 1 && stats.edgeCount > 20 * (n - 1);
+    System.out.println("Light path:  " + stats.extracted + " of " +
+                       stats.edgeCount + " edges removed from the heap.");
+
+    g = randomGraph(random, 100000, 2000000, 1 << 20, 1);
+    Kruskal.minSpanTree(g.freeze(), Kruskal.LAZY, stats);
+    System.out.println("Random graph:  " + stats.extracted + " of " +
+                       stats.edgeCount + " edges removed from the heap.");
+    System.out.println("Lazy Kruskal test " + (ok ? "passed." : "FAILED."));
+  }
+
+  /**
+   * randomGraph() returns a graph on Integer vertices 0...n - 1 (vertex i
+   * has id i) with m random edges, self-edges included, whose weights are
+   * drawn from "weights" values; an edge joins u and v only if they are
+   * equal mod "pieces".
+   */
+  private static WUGraph randomGraph(Random random, int n, int m, int weights,
+                                     int pieces) {
+    WUGraph g = new WUGraph(n, m);
+    for (int i = 0; i < n; i++) {
+      g.addVertex(Integer.valueOf(i));
+    }
+    for (int i = 0; i < m; i++) {
+      int u = random.nextInt(n);
+      int v = random.nextInt(n);
+      if (u % pieces == v % pieces) {
+        g.addEdgeById(u, v, random.nextInt(weights));
+      }
+    }
+    return g;
+  }
+}
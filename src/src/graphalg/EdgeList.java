@@ -0,0 +1,60 @@
+/* EdgeList.java */
+
+package src.graphalg;
+
+import src.graph.*;
+
+/**
+ * An EdgeList holds each undirected edge of a graph exactly once, in three
+ * parallel int arrays.  It is the common input of the MST algorithms in this
+ * package.
+ *
+ * Built from a CompactGraph, the edges are taken from the row of their
+ * lower-numbered endpoint, in row order; edge i is therefore the same edge
+ * for every algorithm, which lets them break weight ties identically (by
+ * edge index).  An EdgeList can also be filled straight from a WUGraph by
+ * passing it to WUGraph.forEachEdge(), in which case the endpoints are
+ * vertex ids.  Self-edges never belong to a spanning tree and are left out.
+ */
+
+class EdgeList implements EdgeConsumer {
+
+  int[] from;
+  int[] to;
+  int[] weight;
+  int size;
+
+  EdgeList(int capacity) {
+    from = new int[capacity];
+    to = new int[capacity];
+    weight = new int[capacity];
+  }
+
+  EdgeList(CompactGraph c) {
+    this(c.edgeCount());
+    for (int u = 0; u < c.vertexCount(); u++) {
+      for (int i = c.begin(u); i < c.end(u); i++) {
+        int v = c.target(i);
+        if (u < v) {
+          from[size] = u;
+          to[size] = v;
+          weight[size] = c.weight(i);
+          size++;
+        }
+      }
+    }
+  }
+
+  /**
+   * edge() appends the edge (u, v) unless it is a self-edge.  The arrays
+   * must have room for it.
+   */
+  public void edge(int u, int v, int w) {
+    if (u != v) {
+      from[size] = u;
+      to[size] = v;
+      weight[size] = w;
+      size++;
+    }
+  }
+}
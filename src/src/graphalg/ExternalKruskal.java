@@ -0,0 +1,345 @@
+/* ExternalKruskal.java */
+
+package src.graphalg;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import src.graph.*;
+import src.set.*;
+
+/**
+ * The ExternalKruskal class computes a minimum spanning forest of a graph
+ * whose edges are too many to hold in memory, reading them from an edge
+ * file.  Only the vertices need to fit:  the algorithm finishes with O(V)
+ * heap (the DisjointSets and the forest itself), whatever the number of
+ * edges.
+ *
+ * An edge file starts with the number of vertices V, followed by one record
+ * per undirected edge:  the two endpoints, each in 0...V - 1, and the
+ * weight.  All four are big-endian ints, as written by DataOutputStream; an
+ * EdgeWriter produces such a file.  Each edge should appear once.
+ *
+ * minSpanTree() is Kruskal's algorithm with an external merge sort.  First,
+ * the edges are read a memory budget's worth at a time, each batch is
+ * radix-sorted by weight, and each sorted batch is written to a run file in
+ * a temporary directory.  Then groups of runs are merged into longer runs
+ * until few enough remain to merge all at once, each run read through its own
+ * buffer.  The final merge feeds the edges, lightest first, straight into
+ * union-find, and stops as soon as the forest is complete.
+ */
+
+public class ExternalKruskal {
+
+  private static final int RECORD = 12;                // bytes per edge
+  private static final int SORT_BYTES = 32;    // bytes per edge while sorting
+  private static final int MIN_BUFFER = 1 << 12;
+  private static final int MAX_BUFFER = 1 << 16;
+  private static final int MAX_FAN_IN = 512;
+
+  /**
+   * minSpanTree() returns the minimum spanning forest of the graph in
+   * "edgeFile".  Vertex v of the result is the Integer v.
+   *
+   * @param edgeFile the edge file.
+   * @param memoryBudget roughly how many bytes of heap the sort may use, on
+   *        top of the O(V) the result needs.
+   * @param tempDir the directory for run files, or null for the system's
+   *        default temporary directory.  Runs are deleted before returning.
+   */
+  public static MstResult minSpanTree(File edgeFile, long memoryBudget,
+                                      File tempDir) throws IOException {
+    List<File> runs = new ArrayList<File>();
+    try {
+      int n = makeRuns(edgeFile, memoryBudget, tempDir, runs);
+      int fanIn = (int) Math.max(2, Math.min(MAX_FAN_IN,
+                                             memoryBudget / MAX_BUFFER));
+      int buffer = (int) Math.max(MIN_BUFFER, Math.min(MAX_BUFFER,
+                                                 memoryBudget / (fanIn + 1)));
+      while (runs.size() > fanIn) {
+        List<File> group = new ArrayList<File>(runs.subList(0, fanIn));
+        runs.subList(0, fanIn).clear();
+        try {
+          File merged = File.createTempFile("kruskal-run", ".bin", tempDir);
+          runs.add(merged);
+          Merger m = new Merger(group, buffer);
+          try {
+            DataOutputStream out = create(merged, buffer);
+            try {
+              while (m.next()) {
+                out.writeInt(m.u);
+                out.writeInt(m.v);
+                out.writeInt(m.w);
+              }
+            } finally {
+              out.close();
+            }
+          } finally {
+            m.close();
+          }
+        } finally {
+          delete(group);                  // no longer in runs, so always here
+        }
+      }
+
+      int limit = Math.max(n - 1, 0);
+      int[] from = new int[limit];
+      int[] to = new int[limit];
+      int[] weight = new int[limit];
+      DisjointSets ds = new DisjointSets(n);
+      int num = 0;
+      Merger m = new Merger(runs, buffer);
+      try {
+        while (num < limit && m.next()) {
+          int r1 = ds.find(m.u);
+          int r2 = ds.find(m.v);
+          if (r1 != r2) {
+            from[num] = m.u;
+            to[num] = m.v;
+            weight[num++] = m.w;
+            ds.union(r1, r2);
+          }
+        }
+      } finally {
+        m.close();
+      }
+      return new MstResult(n, from, to, weight, num);
+    } finally {
+      delete(runs);
+    }
+  }
+
+  /**
+   * makeRuns() reads "edgeFile" in batches that fit "memoryBudget", writes
+   * each batch sorted by weight to a new run file, appends the run files to
+   * "runs", and returns the number of vertices.
+   */
+  private static int makeRuns(File edgeFile, long memoryBudget, File tempDir,
+                              List<File> runs) throws IOException {
+    long m = (edgeFile.length() - 4) / RECORD;
+    DataInputStream in = open(edgeFile, MAX_BUFFER);
+    try {
+      int n = in.readInt();
+      int batch = (int) Math.max(1, Math.min(m, Math.min(Integer.MAX_VALUE / 2,
+                                             memoryBudget / SORT_BYTES)));
+      int[] u = new int[batch];
+      int[] v = new int[batch];
+      int[] w = new int[batch];
+      for (long read = 0; read < m; ) {
+        int k = (int) Math.min(batch, m - read);
+        for (int i = 0; i < k; i++) {
+          u[i] = in.readInt();
+          v[i] = in.readInt();
+          w[i] = in.readInt();
+        }
+        read += k;
+        int[] sorted = RadixSort.sortIndices(w, k);
+        File run = File.createTempFile("kruskal-run", ".bin", tempDir);
+        runs.add(run);
+        DataOutputStream out = create(run, MAX_BUFFER);
+        try {
+          for (int i = 0; i < k; i++) {
+            int e = sorted[i];
+            out.writeInt(u[e]);
+            out.writeInt(v[e]);
+            out.writeInt(w[e]);
+          }
+        } finally {
+          out.close();
+        }
+      }
+      return n;
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * A Merger reads several sorted runs at once and returns their edges in
+   * one sorted sequence.  The runs wait in an IndexedDaryHeap keyed by the
+   * weight of their next edge.
+   */
+  private static class Merger {
+    private final DataInputStream[] in;
+    private final long[] remaining;
+    private final int[] headU;
+    private final int[] headV;
+    private final IndexedDaryHeap heap;
+    int u;
+    int v;
+    int w;
+
+    Merger(List<File> runs, int buffer) throws IOException {
+      int k = runs.size();
+      in = new DataInputStream[k];
+      remaining = new long[k];
+      headU = new int[k];
+      headV = new int[k];
+      heap = new IndexedDaryHeap(k, 4);
+      boolean opened = false;
+      try {
+        for (int r = 0; r < k; r++) {
+          File run = runs.get(r);
+          in[r] = open(run, buffer);
+          remaining[r] = run.length() / RECORD;
+          advance(r);
+        }
+        opened = true;
+      } finally {
+        if (!opened) {
+          abort();
+        }
+      }
+    }
+
+    /**
+     * next() moves the lightest remaining edge into u, v and w, and returns
+     * false if there is none.
+     */
+    boolean next() throws IOException {
+      if (heap.isEmpty()) {
+        return false;
+      }
+      w = heap.minKey();
+      int r = heap.removeMin();
+      u = headU[r];
+      v = headV[r];
+      advance(r);
+      return true;
+    }
+
+    private void advance(int r) throws IOException {
+      if (remaining[r] > 0) {
+        remaining[r]--;
+        headU[r] = in[r].readInt();
+        headV[r] = in[r].readInt();
+        heap.insert(r, in[r].readInt());
+      }
+    }
+
+    void close() throws IOException {
+      for (int r = 0; r < in.length; r++) {
+        if (in[r] != null) {
+          in[r].close();
+        }
+      }
+    }
+
+    /**
+     * abort() closes the runs opened so far when the constructor fails.
+     * Errors from close() are dropped so that the constructor's own
+     * exception is the one that reaches the caller.
+     */
+    private void abort() {
+      for (int r = 0; r < in.length; r++) {
+        if (in[r] != null) {
+          try {
+            in[r].close();
+          } catch (IOException e) {
+            // The constructor is already failing with a better exception.
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * An EdgeWriter writes an edge file.  Passed to WUGraph.forEachEdge(), it
+   * writes every edge of the graph, with vertex ids as vertex numbers; the
+   * vertex count is then the graph's idCapacity().
+   */
+  public static class EdgeWriter implements EdgeConsumer {
+    private final DataOutputStream out;
+
+    /**
+     * Construct a writer for a new edge file of "vertexCount" vertices.
+     */
+    public EdgeWriter(File file, int vertexCount) throws IOException {
+      out = create(file, MAX_BUFFER);
+      out.writeInt(vertexCount);
+    }
+
+    /**
+     * edge() appends the edge (u, v) with weight "weight".
+     */
+    public void edge(int u, int v, int weight) {
+      try {
+        out.writeInt(u);
+        out.writeInt(v);
+        out.writeInt(weight);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    /**
+     * close() finishes the file.
+     */
+    public void close() throws IOException {
+      out.close();
+    }
+  }
+
+  private static DataInputStream open(File file, int buffer)
+    throws IOException {
+    return new DataInputStream(new BufferedInputStream(
+                                 new FileInputStream(file), buffer));
+  }
+
+  private static DataOutputStream create(File file, int buffer)
+    throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(
+                                  new FileOutputStream(file), buffer));
+  }
+
+  private static void delete(List<File> files) {
+    for (int i = 0; i < files.size(); i++) {
+      files.get(i).delete();
+    }
+  }
+
+  /**
+   * main() builds a random graph, writes it to an edge file, and checks
+   * that minSpanTree() with a small memory budget (forcing several merge
+   * passes) finds a forest of the same weight and size as Kruskal's
+   * in-memory algorithm.
+   */
+  public static void main(String[] args) throws IOException {
+    Random random = new Random(4);
+    int n = 50000;
+    WUGraph g = new WUGraph(n, 8 * n);
+    for (int i = 0; i < n; i++) {
+      g.addVertex(Integer.valueOf(i));
+    }
+    for (int i = 0; i < 8 * n; i++) {
+      g.addEdgeById(random.nextInt(n), random.nextInt(n),
+                random.nextInt(1 << 20) - 1000);
+    }
+    File file = File.createTempFile("kruskal-edges", ".bin");
+    EdgeWriter writer = new EdgeWriter(file, g.idCapacity());
+    g.forEachEdge(writer);
+    writer.close();
+
+    long start = System.nanoTime();
+    MstResult external = minSpanTree(file, 1 << 18, null);
+    long ms = (System.nanoTime() - start) / 1000000;
+    file.delete();
+    MstResult internal = Kruskal.minSpanTreeResult(g);
+    boolean ok = external.totalWeight == internal.totalWeight &&
+                 external.componentCount == internal.componentCount;
+    System.out.println(g.edgeCount() + " edges in " + ms +
+                       " ms with a 256 KB budget; external MST " +
+                       (ok ? "matches" : "DOES NOT MATCH") +
+                       " in-memory Kruskal.");
+  }
+}
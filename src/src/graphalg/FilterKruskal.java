@@ -0,0 +1,221 @@
+/* FilterKruskal.java */
+
+package src.graphalg;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import src.graph.*;
+import src.set.*;
+
+/**
+ * The FilterKruskal class contains the method minSpanTree(), which computes
+ * a minimum spanning tree with the Filter-Kruskal variant of Kruskal's
+ * algorithm.
+ *
+ * Instead of sorting every edge up front, the edges are partitioned around
+ * a pivot weight as in quicksort, and the light part is handled first.  By
+ * the time the heavy part is reached, much of the tree is already built, so
+ * the heavy edges whose endpoints DisjointSets.find() shows are connected
+ * are dropped before they are ever sorted.  Small parts are sorted and fed
+ * to plain Kruskal.  On graphs where most heavy edges close cycles (road
+ * networks, meshes, random graphs of moderate density) most of the sorting
+ * work disappears, and the recursion stops as soon as the tree is complete.
+ *
+ * Ties are broken by edge index (see EdgeList), so the result has exactly
+ * the same edges as Kruskal.minSpanTree() with the RADIX ordering.
+ */
+
+public class FilterKruskal {
+
+  private static final int BASE = 1 << 10;   // parts this small are sorted
+
+  private final EdgeList edges;
+  private final int[] idx;
+  private final DisjointSets ds;
+  private final int[] tree;
+  private int treeSize;
+  private final Random random = new Random(0);
+
+  private FilterKruskal(CompactGraph c) {
+    edges = new EdgeList(c);
+    idx = new int[edges.size];
+    for (int e = 0; e < edges.size; e++) {
+      idx[e] = e;
+    }
+    ds = new DisjointSets(c.vertexCount());
+    tree = new int[Math.max(c.vertexCount() - 1, 0)];
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the WUGraph g.  The original WUGraph g is NOT changed.
+   *
+   * @param g The weighted, undirected graph whose MST we want to compute.
+   * @return A newly constructed WUGraph representing the MST of g.
+   */
+  public static WUGraph minSpanTree(WUGraph g) {
+    return minSpanTree(g.freeze());
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the CompactGraph c.
+   *
+   * @param c The compact snapshot whose MST we want to compute.
+   * @return A newly constructed WUGraph representing the MST of c.
+   */
+  public static WUGraph minSpanTree(CompactGraph c) {
+    FilterKruskal fk = new FilterKruskal(c);
+    fk.solve(0, fk.edges.size);
+    int n = c.vertexCount();
+    WUGraph t = new WUGraph(n, n);
+    for (int u = 0; u < n; u++) {
+      t.addVertex(c.vertex(u));                   // t's id of c.vertex(u) is u
+    }
+    for (int i = 0; i < fk.treeSize; i++) {
+      int e = fk.tree[i];
+      t.addEdgeById(fk.edges.from[e], fk.edges.to[e], fk.edges.weight[e]);
+    }
+    return t;
+  }
+
+  /**
+   * solve() adds to the tree every tree edge among idx[lo...hi-1], which
+   * must all be heavier than any edge already processed.
+   */
+  private void solve(int lo, int hi) {
+    if (done() || lo >= hi) {
+      return;
+    }
+    if (hi - lo <= BASE) {
+      kruskal(lo, hi);
+      return;
+    }
+    int pivot = pivot(lo, hi);
+
+    // Three-way partition:  [lo, lt) lighter, [lt, gt) equal, [gt, hi)
+    // heavier than the pivot.  Equal weights get a part of their own so that
+    // a range of identical weights cannot recurse forever.
+    int lt = lo, i = lo, gt = hi;
+    while (i < gt) {
+      int w = edges.weight[idx[i]];
+      if (w < pivot) {
+        swap(lt++, i++);
+      } else if (w > pivot) {
+        swap(i, --gt);
+      } else {
+        i++;
+      }
+    }
+    solve(lo, lt);
+    if (!done()) {
+      kruskal(lt, filter(lt, gt));
+    }
+    if (!done()) {
+      solve(gt, filter(gt, hi));
+    }
+  }
+
+  /**
+   * filter() moves the edges of idx[lo...hi-1] whose endpoints are still in
+   * different sets to the front of the range, preserving their order, and
+   * returns the end of the kept part.
+   */
+  private int filter(int lo, int hi) {
+    int out = lo;
+    for (int i = lo; i < hi; i++) {
+      int e = idx[i];
+      if (ds.find(edges.from[e]) != ds.find(edges.to[e])) {
+        idx[out++] = e;
+      }
+    }
+    return out;
+  }
+
+  /**
+   * kruskal() sorts idx[lo...hi-1] by weight, then index, and runs plain
+   * Kruskal over it.
+   */
+  private void kruskal(int lo, int hi) {
+    int n = hi - lo;
+    long[] packed = new long[n];
+    for (int i = 0; i < n; i++) {
+      int e = idx[lo + i];
+      packed[i] = ((long) edges.weight[e] << 32) | e;
+    }
+    Arrays.sort(packed);
+    for (int i = 0; i < n && !done(); i++) {
+      int e = (int) packed[i];
+      int r1 = ds.find(edges.from[e]);
+      int r2 = ds.find(edges.to[e]);
+      if (r1 != r2) {
+        ds.union(r1, r2);
+        tree[treeSize++] = e;
+      }
+    }
+  }
+
+  /**
+   * pivot() returns the median weight of three edges sampled from
+   * idx[lo...hi-1].
+   */
+  private int pivot(int lo, int hi) {
+    int a = edges.weight[idx[lo + random.nextInt(hi - lo)]];
+    int b = edges.weight[idx[lo + random.nextInt(hi - lo)]];
+    int c = edges.weight[idx[lo + random.nextInt(hi - lo)]];
+    return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+  }
+
+  private boolean done() {
+    return treeSize == tree.length;
+  }
+
+  private void swap(int i, int j) {
+    int t = idx[i];
+    idx[i] = idx[j];
+    idx[j] = t;
+  }
+
+  /**
+   * main() compares the tree with Kruskal's RADIX tree, edge for edge, on
+   * random graphs:  small ones handled by the base case alone, large ones
+   * with only three distinct weights (so that the pivot's equal part is
+   * large), large ones with a single weight (everything lands in the equal
+   * part), and large ones with wide weights, self-edges and several pieces.
+   */
+  public static void main(String[] args) {
+    Random random = new Random(8);
+    int checked = 0;
+    int agree = 0;
+    for (int trial = 0; trial < 40; trial++) {
+      int kind = trial % 4;
+      int n = kind == 0 ? 20 + random.nextInt(30)
+                        : 2000 + random.nextInt(2000);
+      int m = kind == 0 ? random.nextInt(BASE / 2) : 10 * n;
+      int weights = kind == 1 ? 3 : kind == 2 ? 1 : 1 << 20;
+      int pieces = kind == 3 ? 1 + random.nextInt(4) : 1;
+      WUGraph g = new WUGraph(n, m);
+      Integer[] names = new Integer[n];
+      for (int i = 0; i < n; i++) {
+        names[i] = Integer.valueOf(i);
+        g.addVertex(names[i]);
+      }
+      for (int i = 0; i < m; i++) {
+        int u = random.nextInt(n);
+        int v = kind == 3 && i % 10 == 0 ? u : random.nextInt(n);
+        if (u % pieces == v % pieces) {
+          g.addEdge(names[u], names[v], random.nextInt(weights) - weights / 2);
+        }
+      }
+      CompactGraph c = g.freeze();
+      checked++;
+      if (Kruskal.sameEdges(minSpanTree(c),
+                            Kruskal.minSpanTree(c, Kruskal.RADIX))) {
+        agree++;
+      }
+    }
+    System.out.println("FilterKruskal matches Kruskal (radix) on " + agree +
+                       " of " + checked + " graphs.");
+  }
+}
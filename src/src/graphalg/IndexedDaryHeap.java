@@ -0,0 +1,219 @@
+/* IndexedDaryHeap.java */
+
+package src.graphalg;
+
+import java.util.Random;
+
+/**
+ * An IndexedDaryHeap is a min-heap of the items 0...capacity - 1, each with
+ * an int key, in which every node has d children.  Because the heap keeps
+ * track of where each item sits, an item's key can be lowered in place
+ * (decreaseKey()), which is what Prim's and Dijkstra's algorithms need.
+ *
+ * A larger d makes the heap shallower, so decreaseKey() (which sifts up, one
+ * comparison per level) gets cheaper while removeMin() (which sifts down,
+ * d comparisons per level) gets dearer.  On dense graphs decreaseKey()
+ * dominates, and d = 4 to 8 is usually best.  The children of a node sit
+ * next to each other in the array, so the d comparisons touch one or two
+ * cache lines.
+ */
+
+public class IndexedDaryHeap {
+
+  private final int d;
+  private final int[] heap;          // heap[p] is the item at position p
+  private final int[] pos;           // pos[item] is its position, or -1
+  private final int[] key;           // key[item], valid while item is in
+  private int size;
+
+  /**
+   * Construct an empty heap for the items 0...capacity - 1.
+   *
+   * @param capacity the number of distinct items.
+   * @param d the number of children per node; at least 2.
+   */
+  public IndexedDaryHeap(int capacity, int d) {
+    this.d = d;
+    heap = new int[capacity];
+    pos = new int[capacity];
+    key = new int[capacity];
+    for (int i = 0; i < capacity; i++) {
+      pos[i] = -1;
+    }
+  }
+
+  /**
+   * size() returns the number of items in the heap.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * isEmpty() returns true if the heap holds no items.
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * contains() returns true if "item" is in the heap.
+   */
+  public boolean contains(int item) {
+    return pos[item] >= 0;
+  }
+
+  /**
+   * key() returns the key of "item", which must be in the heap.
+   */
+  public int key(int item) {
+    return key[item];
+  }
+
+  /**
+   * minKey() returns the smallest key in the heap, which must not be empty.
+   */
+  public int minKey() {
+    return key[heap[0]];
+  }
+
+  /**
+   * insert() adds "item", which must not be in the heap, with key "k".
+   *
+   * Running time:  O(log_d n).
+   */
+  public void insert(int item, int k) {
+    key[item] = k;
+    heap[size] = item;
+    pos[item] = size;
+    siftUp(size++);
+  }
+
+  /**
+   * decreaseKey() lowers the key of "item", which must be in the heap, to
+   * "k".  Does nothing if k is not lower than the item's current key.
+   *
+   * Running time:  O(log_d n).
+   */
+  public void decreaseKey(int item, int k) {
+    if (k < key[item]) {
+      key[item] = k;
+      siftUp(pos[item]);
+    }
+  }
+
+  /**
+   * removeMin() removes the item with the smallest key from the heap, which
+   * must not be empty, and returns it.
+   *
+   * Running time:  O(d log_d n).
+   */
+  public int removeMin() {
+    int min = heap[0];
+    pos[min] = -1;
+    size--;
+    if (size > 0) {
+      int last = heap[size];
+      heap[0] = last;
+      pos[last] = 0;
+      siftDown(0);
+    }
+    return min;
+  }
+
+  private void siftUp(int p) {
+    int item = heap[p];
+    int k = key[item];
+    while (p > 0) {
+      int parent = (p - 1) / d;
+      int pItem = heap[parent];
+      if (key[pItem] <= k) {
+        break;
+      }
+      heap[p] = pItem;
+      pos[pItem] = p;
+      p = parent;
+    }
+    heap[p] = item;
+    pos[item] = p;
+  }
+
+  private void siftDown(int p) {
+    int item = heap[p];
+    int k = key[item];
+    while (true) {
+      int first = p * d + 1;
+      if (first >= size) {
+        break;
+      }
+      int last = Math.min(first + d, size);
+      int child = first;
+      int cKey = key[heap[first]];
+      for (int c = first + 1; c < last; c++) {
+        int ck = key[heap[c]];
+        if (ck < cKey) {
+          child = c;
+          cKey = ck;
+        }
+      }
+      if (cKey >= k) {
+        break;
+      }
+      heap[p] = heap[child];
+      pos[heap[p]] = p;
+      p = child;
+    }
+    heap[p] = item;
+    pos[item] = p;
+  }
+
+  /**
+   * main() checks the heap against a plain array of keys.  For d = 2, 3 and
+   * 4 it runs random inserts, decreaseKey()s (half of them on the current
+   * minimum or below it) and removeMin()s, and checks every minKey() and
+   * removeMin() against a linear scan.
+   */
+  public static void main(String[] args) {
+    Random random = new Random(7);
+    int n = 2000;
+    boolean ok = true;
+    int[] arities = {2, 3, 4};
+    for (int a = 0; a < arities.length; a++) {
+      IndexedDaryHeap h = new IndexedDaryHeap(n, arities[a]);
+      int[] keys = new int[n];
+      boolean[] in = new boolean[n];
+      int count = 0;
+      for (int step = 0; step < 200000 && ok; step++) {
+        int item = random.nextInt(n);
+        int op = random.nextInt(3);
+        if (op == 0 && !in[item]) {
+          keys[item] = random.nextInt(10000);
+          h.insert(item, keys[item]);
+          in[item] = true;
+          count++;
+        } else if (op == 1 && in[item]) {
+          int k = random.nextBoolean() ? h.minKey() - random.nextInt(3)
+                                       : keys[item] - random.nextInt(500);
+          h.decreaseKey(item, k);
+          keys[item] = Math.min(keys[item], k);
+          ok = h.key(item) == keys[item];
+        } else if (op == 2 && count > 0) {
+          int min = Integer.MAX_VALUE;
+          for (int i = 0; i < n; i++) {
+            if (in[i] && keys[i] < min) {
+              min = keys[i];
+            }
+          }
+          int minKey = h.minKey();
+          int removed = h.removeMin();
+          ok = minKey == min && in[removed] && keys[removed] == min &&
+               !h.contains(removed);
+          in[removed] = false;
+          count--;
+        }
+        ok = ok && h.size() == count && h.isEmpty() == (count == 0);
+      }
+    }
+    System.out.println("IndexedDaryHeap test " + (ok ? "passed." : "FAILED."));
+  }
+}
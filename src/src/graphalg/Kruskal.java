@@ -2,7 +2,6 @@
 
 package src.graphalg;
 
-import src.dict.HashTableChained;
 import src.graph.*;
 import src.set.*;
 
@@ -13,6 +12,19 @@ import src.set.*;
 
 public class Kruskal {
 
+  /**
+   * Edge-ordering methods accepted by minSpanTree().  HEAPSORT is the
+   * original O(E log E) Heapsort; RADIX is an O(E) LSD radix sort of edge
+   * indices by weight; RADIX_PACKED radix-sorts weight and index packed
+   * into one long per edge.  See RadixSort.main() for the crossover.
+   * LAZY does not sort at all:  it heapifies the edges bottom-up in O(E) and
+   * removes them one at a time only until the tree is complete.
+   */
+  public static final int HEAPSORT = 0;
+  public static final int RADIX = 1;
+  public static final int RADIX_PACKED = 2;
+  public static final int LAZY = 3;
+
   /**
    * minSpanTree() returns a WUGraph that represents the minimum spanning tree
    * of the WUGraph g.  The original WUGraph g is NOT changed.
@@ -21,40 +33,204 @@ public class Kruskal {
    * @return A newly constructed WUGraph representing the MST of g.
    */
   public static WUGraph minSpanTree(WUGraph g) {
-	  WUGraph t = new WUGraph();
-	  Object[] vertices = g.getVertices();
-	  Heapsort hs = new Heapsort(g.edgeCount());
-	  HashTableChained vIntTable = new HashTableChained(g.vertexCount());
-	  vIntTable.makeEmpty();
-	  HashTableChained edgeTable = new HashTableChained(g.edgeCount());
-	  edgeTable.makeEmpty();
-	  for(int i=0;i<g.vertexCount(); i++) {
-		  t.addVertex(vertices[i]);
-		  vIntTable.insert(vertices[i], new Integer(i));
-		  Neighbors n = g.getNeighbors(vertices[i]);
-		  for(int j=0; j<n.neighborList.length;j++) {
-			  	Edge e = new Edge(vertices[i],n.neighborList[j],n.weightList[j]);
-			  	if(edgeTable.find(e)==null) {
-			  		hs.insert(e, e.weight);
-			  		edgeTable.insert(e, new Boolean(true));
-			  	}
+	  return minSpanTreeResult(g).toWUGraph();
+  }
+
+  /**
+   * minSpanTreeResult() computes the minimum spanning tree (a spanning
+   * forest, if g is disconnected) of the WUGraph g as minSpanTree(g) does,
+   * but returns it as an MstResult, leaving the tree graph unbuilt until
+   * the caller asks for it.  Vertex i of the result is the i-th object
+   * returned by g.getVertices().
+   */
+  public static MstResult minSpanTreeResult(WUGraph g) {
+	  int[] ids = g.getVertexIds();
+	  Object[] vertices = new Object[ids.length];
+	  int[] row = new int[g.idCapacity()];			// g's id -> result's vertex
+	  for(int i=0;i<ids.length; i++) {
+		  vertices[i] = g.vertexOf(ids[i]);
+		  row[ids[i]] = i;
+	  }
+	  // forEachEdge() yields each edge once, so the list needs no dedup.
+	  EdgeList edges = new EdgeList(g.edgeCount());
+	  g.forEachEdge(edges);
+	  int[] sorted = sortedOrder(edges, HEAPSORT);
+	  // A vertex's id doubles as its union-find slot, so no table is needed
+	  // to map the endpoints of an edge to sets.
+	  DisjointSets ds = new DisjointSets(g.idCapacity());
+	  int limit = Math.max(ids.length - 1, 0);
+	  int[] from = new int[limit];
+	  int[] to = new int[limit];
+	  int[] weight = new int[limit];
+	  int num = 0;
+	  for(int i=0; i<edges.size && num<limit; i++) {
+		  int e = sorted[i];
+		  int r1 = ds.find(edges.from[e]);
+		  int r2 = ds.find(edges.to[e]);
+		  if(r1!=r2) {
+			  from[num] = row[edges.from[e]];
+			  to[num] = row[edges.to[e]];
+			  weight[num++] = edges.weight[e];
+			  ds.union(r1, r2);
 		  }
 	  }
-	  hs.sort();
-	  DisjointSets ds = new DisjointSets(g.vertexCount());
+	  return new MstResult(vertices, from, to, weight, num);
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the WUGraph g, ordering the edges with the given method (HEAPSORT,
+   * RADIX, RADIX_PACKED or LAZY).  Methods other than HEAPSORT freeze g into
+   * a CompactGraph first and run on that.
+   */
+  public static WUGraph minSpanTree(WUGraph g, int order) {
+	  if(order == HEAPSORT) {
+		  return minSpanTree(g);
+	  } else {
+		  return minSpanTree(g.freeze(), order);
+	  }
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the CompactGraph c, ordering the edges with a radix sort.
+   */
+  public static WUGraph minSpanTree(CompactGraph c) {
+	  return minSpanTree(c, RADIX);
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the CompactGraph c, working directly on its flat arrays.  Each
+   * undirected edge is taken once, from the row of its lower-numbered
+   * endpoint, so no hash table is needed to remove the duplicate half-edges,
+   * and union-find runs on the snapshot's dense vertex numbers.
+   *
+   * With RADIX, RADIX_PACKED or LAZY, among edges of equal weight the one
+   * listed first in c always wins.
+   *
+   * @param c The compact snapshot whose MST we want to compute.
+   * @param order HEAPSORT, RADIX, RADIX_PACKED or LAZY.
+   * @return A newly constructed WUGraph representing the MST of c.
+   */
+  public static WUGraph minSpanTree(CompactGraph c, int order) {
+	  return minSpanTree(c, order, null);
+  }
+
+  /**
+   * minSpanTree() is minSpanTree(c, order), and in addition records in
+   * "stats" (if it is not null) how many edges were taken from the ordering
+   * before the tree was complete.
+   */
+  public static WUGraph minSpanTree(CompactGraph c, int order,
+                                    KruskalStats stats) {
+	  return minSpanTreeResult(c, order, stats).toWUGraph();
+  }
+
+  /**
+   * minSpanTreeResult() computes the same tree as minSpanTree(c, order), but
+   * returns it as an MstResult whose vertex v is c.vertex(v).
+   */
+  public static MstResult minSpanTreeResult(CompactGraph c, int order) {
+	  return minSpanTreeResult(c, order, null);
+  }
+
+  /**
+   * minSpanTreeResult() is minSpanTreeResult(c, order), and in addition
+   * records in "stats" (if it is not null) how many edges were taken from
+   * the ordering before the tree was complete.
+   */
+  public static MstResult minSpanTreeResult(CompactGraph c, int order,
+                                            KruskalStats stats) {
+	  EdgeList edges = new EdgeList(c);
+	  int[] sorted = null;
+	  EdgeHeap heap = null;
+	  if(order == LAZY) {
+		  heap = new EdgeHeap(edges);
+	  } else {
+		  sorted = sortedOrder(edges, order);
+	  }
+	  int n = c.vertexCount();
+	  Object[] vertices = new Object[n];
+	  for(int u = 0; u < n; u++) {
+		  vertices[u] = c.vertex(u);
+	  }
+	  int limit = Math.max(n - 1, 0);
+	  int[] from = new int[limit];
+	  int[] to = new int[limit];
+	  int[] weight = new int[limit];
+	  DisjointSets ds = new DisjointSets(n);
 	  int num = 0;
-	  for(int i=g.edgeCount()-1; i>=0; i--) {
-		  Edge e = (Edge) hs.heap[i];
-		  Object o1 = e.object1;
-		  Object o2 = e.object2;
-		  int v1 = ((Integer) vIntTable.find(o1).value()).intValue();
-		  int v2 = ((Integer) vIntTable.find(o2).value()).intValue();
-		  if(ds.find(v1)!=ds.find(v2)) {
-			  t.addEdge(o1, o2, e.weight);
-			  ds.union(v1, v2);
-			  if(++num==g.vertexCount()-1) {break;}
+	  int taken = 0;
+	  while(taken < edges.size && num < limit) {
+		  int e = (heap != null) ? heap.removeMin() : sorted[taken];
+		  taken++;
+		  int r1 = ds.find(edges.from[e]);
+		  int r2 = ds.find(edges.to[e]);
+		  if(r1 != r2) {
+			  from[num] = edges.from[e];
+			  to[num] = edges.to[e];
+			  weight[num++] = edges.weight[e];
+			  ds.union(r1, r2);
+		  }
+	  }
+	  if(stats != null) {
+		  stats.edgeCount = edges.size;
+		  stats.extracted = taken;
+	  }
+	  return new MstResult(vertices, from, to, weight, num);
+  }
+
+  /**
+   * sortedOrder() returns the indices of the edges in "edges", from lightest
+   * to heaviest, computed with the given ordering method.
+   */
+  static int[] sortedOrder(EdgeList edges, int order) {
+	  int m = edges.size;
+	  int[] sorted = new int[m];
+	  if(order == HEAPSORT) {
+		  Heapsort hs = new Heapsort(m);
+		  for(int e = 0; e < m; e++) {
+			  hs.insert(Integer.valueOf(e), edges.weight[e]);
+		  }
+		  hs.sort();
+		  for(int i = 0; i < m; i++) {
+			  sorted[i] = ((Integer) hs.heap[m - 1 - i]).intValue();
+		  }
+	  } else if(order == RADIX_PACKED) {
+		  long[] packed = new long[m];
+		  for(int e = 0; e < m; e++) {
+			  packed[e] = RadixSort.pack(edges.weight[e], e);
+		  }
+		  RadixSort.sort(packed, m);
+		  for(int i = 0; i < m; i++) {
+			  sorted[i] = RadixSort.index(packed[i]);
+		  }
+	  } else {
+		  sorted = RadixSort.sortIndices(edges.weight, m);
+	  }
+	  return sorted;
+  }
+
+  /**
+   * sameEdges() returns true if the trees a and b have exactly the same
+   * edges, with the same weights.  Test code uses it to hold the other MST
+   * engines to Kruskal's result.
+   */
+  static boolean sameEdges(WUGraph a, WUGraph b) {
+	  if(a.edgeCount() != b.edgeCount()) {
+		  return false;
+	  }
+	  Object[] vs = a.getVertices();
+	  for(int i = 0; i < vs.length; i++) {
+		  Neighbors nb = a.getNeighbors(vs[i]);
+		  for(int j = 0; nb != null && j < nb.neighborList.length; j++) {
+			  if(!b.isEdge(vs[i], nb.neighborList[j]) ||
+			     b.weight(vs[i], nb.neighborList[j]) != nb.weightList[j]) {
+				  return false;
+			  }
 		  }
 	  }
-	return t; 
+	  return true;
   }
 }
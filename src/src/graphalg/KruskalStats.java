@@ -0,0 +1,19 @@
+/* KruskalStats.java */
+
+package src.graphalg;
+
+/**
+ * The KruskalStats class lets Kruskal.minSpanTree() report how much of the
+ * edge list it actually used.  edgeCount is the number of distinct
+ * non-self edges considered; extracted is how many of them were taken, in
+ * weight order, before the tree was complete.  With the LAZY ordering,
+ * extracted is exactly the number of heap removals.
+ *
+ * Since this class is NOT an abstract data type, but is merely a collection of
+ * data, all fields are public.
+ */
+
+public class KruskalStats {
+  public int edgeCount;
+  public int extracted;
+}
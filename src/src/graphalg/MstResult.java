@@ -0,0 +1,149 @@
+/* MstResult.java */
+
+package src.graphalg;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import src.graph.*;
+
+/**
+ * An MstResult holds a minimum spanning forest as three parallel int arrays,
+ * without building a graph for it.  Edge i joins vertices from[i] and to[i]
+ * and weighs weight[i].  Vertices are numbered from zero to vertexCount() - 1;
+ * vertex(v) returns the object that served as vertex v in the input graph
+ * (or the Integer v, for inputs such as the edge files of ExternalKruskal
+ * whose vertices are plain numbers).  The edges are listed in the order the
+ * algorithm chose them, lightest first.
+ *
+ * totalWeight and componentCount (the number of trees in the forest, one if
+ * the input graph is connected) are computed along the way.  Callers that
+ * need the forest as a WUGraph call toWUGraph(), which builds it on first
+ * use; in that graph, vertex(v) has id v.
+ *
+ * The arrays belong to the result and must not be changed.
+ */
+
+public class MstResult {
+
+  public final int[] from;
+  public final int[] to;
+  public final int[] weight;
+  public final long totalWeight;
+  public final int componentCount;
+
+  private final Object[] vertices;                  // null for numbered input
+  private final int vertexCount;
+  private WUGraph tree;
+
+  /**
+   * Construct a result from the first "size" entries of the three arrays,
+   * which are trimmed if they are longer.
+   */
+  MstResult(Object[] vertices, int[] from, int[] to, int[] weight, int size) {
+    this(vertices, vertices.length, from, to, weight, size);
+  }
+
+  /**
+   * Construct a result over the vertices 0...vertexCount - 1, which have no
+   * objects of their own.
+   */
+  MstResult(int vertexCount, int[] from, int[] to, int[] weight, int size) {
+    this(null, vertexCount, from, to, weight, size);
+  }
+
+  private MstResult(Object[] vertices, int vertexCount, int[] from, int[] to,
+                    int[] weight, int size) {
+    this.vertices = vertices;
+    this.vertexCount = vertexCount;
+    this.from = size == from.length ? from : Arrays.copyOf(from, size);
+    this.to = size == to.length ? to : Arrays.copyOf(to, size);
+    this.weight = size == weight.length ? weight : Arrays.copyOf(weight, size);
+    long total = 0;
+    for (int i = 0; i < size; i++) {
+      total += weight[i];
+    }
+    totalWeight = total;
+    componentCount = vertexCount - size;
+  }
+
+  /**
+   * vertexCount() returns the number of vertices of the forest, which are
+   * all the vertices of the input graph.
+   */
+  public int vertexCount() {
+    return vertexCount;
+  }
+
+  /**
+   * edgeCount() returns the number of edges of the forest.
+   */
+  public int edgeCount() {
+    return from.length;
+  }
+
+  /**
+   * vertex() returns the object that served as vertex v in the input graph,
+   * or the Integer v if the input had no vertex objects.
+   */
+  public Object vertex(int v) {
+    return vertices == null ? Integer.valueOf(v) : vertices[v];
+  }
+
+  /**
+   * toWUGraph() returns the forest as a WUGraph, built on the first call and
+   * shared by later ones.
+   *
+   * Running time:  O(|V|) for the first call, O(1) after.
+   */
+  public WUGraph toWUGraph() {
+    if (tree == null) {
+      WUGraph t = new WUGraph(vertexCount, vertexCount);
+      for (int v = 0; v < vertexCount; v++) {
+        t.addVertex(vertex(v));                     // t's id of vertex v is v
+      }
+      for (int i = 0; i < from.length; i++) {
+        t.addEdgeById(from[i], to[i], weight[i]);
+      }
+      tree = t;
+    }
+    return tree;
+  }
+
+  /**
+   * main() checks an MstResult against the WUGraph it converts to, on a
+   * random graph made of three separate pieces.
+   */
+  public static void main(String[] args) {
+    Random random = new Random(2);
+    int n = 3000;
+    WUGraph g = new WUGraph();
+    Integer[] names = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      names[i] = Integer.valueOf(i);
+      g.addVertex(names[i]);
+    }
+    for (int i = 0; i < 10 * n; i++) {
+      int u = random.nextInt(n);
+      int v = (u / 1000) * 1000 + random.nextInt(1000);    // stay in piece
+      g.addEdge(names[u], names[v], random.nextInt(500) - 100);
+    }
+    MstResult r = Kruskal.minSpanTreeResult(g);
+    WUGraph t = r.toWUGraph();
+    long total = 0;
+    Object[] vs = t.getVertices();
+    for (int i = 0; i < vs.length; i++) {
+      Neighbors nb = t.getNeighbors(vs[i]);
+      for (int j = 0; nb != null && j < nb.weightList.length; j++) {
+        total += nb.weightList[j];
+      }
+    }
+    boolean ok = r.componentCount == 3 && r.edgeCount() == n - 3 &&
+                 t.edgeCount() == n - 3 && 2 * r.totalWeight == total &&
+                 r.totalWeight == Kruskal.minSpanTreeResult(g.freeze(),
+                                                            Kruskal.RADIX)
+                                        .totalWeight &&
+                 t == r.toWUGraph();
+    System.out.println("MstResult test " + (ok ? "passed." : "FAILED."));
+  }
+}
@@ -0,0 +1,192 @@
+/* Prim.java */
+
+package src.graphalg;
+
+import java.util.Random;
+
+import src.graph.*;
+
+/**
+ * The Prim class contains the method minSpanTree(), which implements Prim's
+ * algorithm for computing a minimum spanning tree (a spanning forest, if the
+ * graph is disconnected).
+ *
+ * The tree grows from one vertex at a time; the vertices not yet in it wait
+ * in an IndexedDaryHeap keyed by the weight of their lightest edge into the
+ * tree.  Each edge is looked at twice and costs at most one decreaseKey(),
+ * so the running time is O(E log_d V + V d log_d V) and no list of all edges
+ * is ever built or sorted.  On dense graphs, where E approaches V^2, this
+ * beats Kruskal, whose sort alone is O(E log E).
+ */
+
+public class Prim {
+
+  /**
+   * Default number of children per heap node.
+   */
+  public static final int ARITY = 4;
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the WUGraph g.  The original WUGraph g is NOT changed.
+   *
+   * @param g The weighted, undirected graph whose MST we want to compute.
+   * @return A newly constructed WUGraph representing the MST of g.
+   */
+  public static WUGraph minSpanTree(WUGraph g) {
+    return minSpanTree(g, ARITY);
+  }
+
+  /**
+   * minSpanTree() returns a WUGraph that represents the minimum spanning tree
+   * of the WUGraph g, using a heap in which every node has "arity" children.
+   *
+   * @param g The weighted, undirected graph whose MST we want to compute.
+   * @param arity The number of children per heap node; at least 2.
+   * @return A newly constructed WUGraph representing the MST of g.
+   */
+  public static WUGraph minSpanTree(WUGraph g, int arity) {
+    int[] ids = g.getVertexIds();
+    int cap = g.idCapacity();
+    WUGraph t = new WUGraph(ids.length, ids.length);
+    int[] tId = new int[cap];                   // g's id -> t's id
+    for (int i = 0; i < ids.length; i++) {
+      tId[ids[i]] = t.addVertex(g.vertexOf(ids[i]));
+    }
+
+    IndexedDaryHeap heap = new IndexedDaryHeap(cap, arity);
+    boolean[] done = new boolean[cap];
+    int[] parent = new int[cap];
+    Relax relax = new Relax(heap, done, parent);
+    for (int i = 0; i < ids.length; i++) {
+      if (done[ids[i]]) {
+        continue;
+      }
+      parent[ids[i]] = -1;                      // root of a new tree
+      heap.insert(ids[i], 0);
+      while (!heap.isEmpty()) {
+        int w = heap.minKey();
+        int u = heap.removeMin();
+        done[u] = true;
+        if (parent[u] >= 0) {
+          t.addEdgeById(tId[parent[u]], tId[u], w);
+        }
+        relax.u = u;
+        g.forEachNeighborById(u, relax);
+      }
+    }
+    return t;
+  }
+
+  /**
+   * Relax offers each neighbor v of vertex u, not yet in the tree, the edge
+   * (u, v) as its new lightest connection.  One instance serves the whole
+   * run, so walking the adjacency lists allocates nothing.
+   */
+  private static class Relax implements IntNeighborConsumer {
+    private final IndexedDaryHeap heap;
+    private final boolean[] done;
+    private final int[] parent;
+    int u;
+
+    Relax(IndexedDaryHeap heap, boolean[] done, int[] parent) {
+      this.heap = heap;
+      this.done = done;
+      this.parent = parent;
+    }
+
+    public void neighbor(int v, int weight) {
+      if (done[v]) {
+        return;
+      }
+      if (!heap.contains(v)) {
+        parent[v] = u;
+        heap.insert(v, weight);
+      } else if (weight < heap.key(v)) {
+        parent[v] = u;
+        heap.decreaseKey(v, weight);
+      }
+    }
+  }
+
+  /**
+   * main() is a check and a benchmark.  On random dense graphs, graphs in
+   * several separate pieces, and graphs full of self-edges, it compares the
+   * forest's total weight and edge count with Kruskal's, for heap arities 2
+   * and 4.  Then it times Prim and Kruskal on one large dense graph.
+   *
+   * Usage:  java src.graphalg.Prim [vertices]
+   */
+  public static void main(String[] args) {
+    Random random = new Random(3);
+    boolean ok = true;
+    for (int trial = 0; trial < 30; trial++) {
+      int n = 50 + random.nextInt(150);
+      int pieces = trial % 3 == 1 ? 1 + random.nextInt(5) : 1;
+      boolean loops = trial % 3 == 2;
+      WUGraph g = randomGraph(random, n, 0.5, pieces, loops);
+      MstResult k = Kruskal.minSpanTreeResult(g);
+      for (int d = 2; d <= 4; d += 2) {
+        WUGraph t = minSpanTree(g, d);
+        ok = ok && t.vertexCount() == n && t.edgeCount() == k.edgeCount() &&
+             totalWeight(t) == k.totalWeight &&
+             (pieces > 1 || t.edgeCount() == n - 1);
+      }
+    }
+    System.out.println("Prim test " + (ok ? "passed." : "FAILED."));
+
+    int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+    WUGraph g = randomGraph(random, n, 0.5, 1, false);
+    minSpanTree(g);                                              // warm up
+    Kruskal.minSpanTree(g);
+    long start = System.nanoTime();
+    WUGraph p = minSpanTree(g);
+    long primMs = (System.nanoTime() - start) / 1000000;
+    start = System.nanoTime();
+    WUGraph k = Kruskal.minSpanTree(g);
+    long kruskalMs = (System.nanoTime() - start) / 1000000;
+    System.out.println(g.edgeCount() + " edges:  Prim " + primMs +
+                       " ms, Kruskal " + kruskalMs + " ms" +
+                       (totalWeight(p) == totalWeight(k) ? "" :
+                        "  (WEIGHTS DIFFER)"));
+  }
+
+  /**
+   * randomGraph() returns a graph of n Integer vertices, split into "pieces"
+   * groups with no edges between them, in which each pair within a group is
+   * joined with probability "density".  If "loops" is true, every vertex
+   * also gets a self-edge, lighter than any other edge.
+   */
+  private static WUGraph randomGraph(Random random, int n, double density,
+                                     int pieces, boolean loops) {
+    WUGraph g = new WUGraph(n, (int) (density * n * n / 2) + n);
+    Integer[] names = new Integer[n];
+    for (int i = 0; i < n; i++) {
+      names[i] = Integer.valueOf(i);
+      g.addVertex(names[i]);
+    }
+    for (int i = 0; i < n; i++) {
+      for (int j = i + 1; j < n; j++) {
+        if (i % pieces == j % pieces && random.nextDouble() < density) {
+          g.addEdge(names[i], names[j], random.nextInt(1000) - 100);
+        }
+      }
+      if (loops) {
+        g.addEdge(names[i], names[i], -1000);
+      }
+    }
+    return g;
+  }
+
+  private static long totalWeight(WUGraph t) {
+    long total = 0;
+    Object[] vs = t.getVertices();
+    for (int i = 0; i < vs.length; i++) {
+      Neighbors nb = t.getNeighbors(vs[i]);
+      for (int j = 0; nb != null && j < nb.weightList.length; j++) {
+        total += nb.weightList[j];
+      }
+    }
+    return total / 2;                          // each edge is seen twice
+  }
+}
@@ -0,0 +1,328 @@
+/* RadixSort.java */
+
+package src.graphalg;
+
+import java.util.Random;
+
+import src.graph.*;
+
+/**
+ * The RadixSort class orders edges by int weight with a least-significant-
+ * digit radix sort, eight bits per pass.  Negative keys are handled by
+ * flipping the sign bit, which maps signed order onto unsigned order.  All
+ * four digit histograms are taken in a single pass over the keys, and a pass
+ * whose digit is the same for every key (the usual case for the high bytes
+ * of small, bounded weights) is skipped outright.
+ *
+ * The sort is stable:  edges with equal weight keep their input order.  It
+ * runs in O(n) time for any int keys, against O(n log n) for Heapsort.
+ */
+
+public class RadixSort {
+
+  private static final int RADIX = 256;
+
+  /**
+   * sortIndices() returns the indices 0...n - 1 ordered by keys[index],
+   * ascending, with ties kept in index order.  "keys" is not changed.
+   *
+   * @param keys the sort keys, one per index.
+   * @param n the number of keys to sort (a prefix of "keys").
+   * @return a new array holding the sorted indices.
+   */
+  public static int[] sortIndices(int[] keys, int n) {
+    int[] k1 = new int[n];
+    int[] i1 = new int[n];
+    for (int i = 0; i < n; i++) {
+      k1[i] = keys[i] ^ Integer.MIN_VALUE;
+      i1[i] = i;
+    }
+    int[][] count = histograms(k1, n);
+    int[] k2 = new int[n];
+    int[] i2 = new int[n];
+    for (int pass = 0; pass < 4; pass++) {
+      int[] c = count[pass];
+      if (!prefix(c, n)) {
+        continue;
+      }
+      int shift = pass * 8;
+      for (int i = 0; i < n; i++) {
+        int pos = c[(k1[i] >>> shift) & 0xff]++;
+        k2[pos] = k1[i];
+        i2[pos] = i1[i];
+      }
+      int[] t = k1;
+      k1 = k2;
+      k2 = t;
+      t = i1;
+      i1 = i2;
+      i2 = t;
+    }
+    return i1;
+  }
+
+  /**
+   * pack() combines a weight and an edge index into one long whose unsigned
+   * order (on the high word) is the signed order of the weight.
+   */
+  public static long pack(int key, int index) {
+    return ((long) (key ^ Integer.MIN_VALUE) << 32) | (index & 0xffffffffL);
+  }
+
+  /**
+   * key() recovers the weight from a value made by pack().
+   */
+  public static int key(long packed) {
+    return (int) (packed >>> 32) ^ Integer.MIN_VALUE;
+  }
+
+  /**
+   * index() recovers the edge index from a value made by pack().
+   */
+  public static int index(long packed) {
+    return (int) packed;
+  }
+
+  /**
+   * sort() sorts the first n values of "a", each made by pack(), by weight.
+   * Only the four high bytes are used as digits; since the sort is stable
+   * and the input usually lists indices in ascending order, ties come out
+   * ordered by index.  Moving one long per element, instead of two parallel
+   * ints, halves the number of scattered writes per pass.
+   */
+  public static void sort(long[] a, int n) {
+    int[][] count = new int[4][RADIX + 1];
+    for (int i = 0; i < n; i++) {
+      int k = (int) (a[i] >>> 32);
+      count[0][(k & 0xff) + 1]++;
+      count[1][((k >>> 8) & 0xff) + 1]++;
+      count[2][((k >>> 16) & 0xff) + 1]++;
+      count[3][(k >>> 24) + 1]++;
+    }
+    long[] src = a;
+    long[] dst = new long[n];
+    for (int pass = 0; pass < 4; pass++) {
+      int[] c = count[pass];
+      if (!prefix(c, n)) {
+        continue;
+      }
+      int shift = 32 + pass * 8;
+      for (int i = 0; i < n; i++) {
+        long x = src[i];
+        dst[c[(int) (x >>> shift) & 0xff]++] = x;
+      }
+      long[] t = src;
+      src = dst;
+      dst = t;
+    }
+    if (src != a) {
+      System.arraycopy(src, 0, a, 0, n);
+    }
+  }
+
+  /**
+   * histograms() counts, for each of the four bytes of the (already
+   * sign-flipped) keys, how many keys have each digit value.  Counts are
+   * stored one slot to the right, ready for prefix().
+   */
+  private static int[][] histograms(int[] k, int n) {
+    int[][] count = new int[4][RADIX + 1];
+    for (int i = 0; i < n; i++) {
+      int x = k[i];
+      count[0][(x & 0xff) + 1]++;
+      count[1][((x >>> 8) & 0xff) + 1]++;
+      count[2][((x >>> 16) & 0xff) + 1]++;
+      count[3][(x >>> 24) + 1]++;
+    }
+    return count;
+  }
+
+  /**
+   * prefix() turns a shifted histogram into starting positions.  Returns
+   * false, meaning the pass can be skipped, if every key has the same digit.
+   */
+  private static boolean prefix(int[] c, int n) {
+    for (int d = 1; d <= RADIX; d++) {
+      if (c[d] == n) {
+        return false;
+      }
+    }
+    for (int d = 1; d <= RADIX; d++) {
+      c[d] += c[d - 1];
+    }
+    return true;
+  }
+
+  /**
+   * main() first checks both sorts:  on key sets with negative keys, with
+   * Integer.MIN_VALUE and MAX_VALUE, with all keys equal and with no keys,
+   * the output must be a sorted permutation of the input with ties kept in
+   * input order (for sort(), also when the packed indices are shuffled).
+   * Then Kruskal with RADIX_PACKED must find trees of the same total weight
+   * as with HEAPSORT, and the same edges as with RADIX, on random graphs.
+   *
+   * The rest is a benchmark.  For a range of edge counts and two weight
+   * ranges it times Heapsort against both radix variants, so the crossover
+   * point can be read off the table.
+   */
+  public static void main(String[] args) {
+    System.out.println("Radix sort test " +
+                       (checkSorts() && checkKruskal() ? "passed." :
+                        "FAILED."));
+    int[] sizes = {100, 1000, 10000, 100000, 1000000, 4000000};
+    int[] ranges = {200, 2000000000};
+    Random random = new Random(0);
+    for (int r = 0; r < ranges.length; r++) {
+      System.out.println("Weights in [" + (-ranges[r] / 2) + ", " +
+                         (ranges[r] / 2) + "):");
+      System.out.println("       n   heapsort(ms)   radix(ms)   packed(ms)");
+      for (int s = 0; s < sizes.length; s++) {
+        int n = sizes[s];
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+          keys[i] = random.nextInt(ranges[r]) - ranges[r] / 2;
+        }
+        int reps = Math.max(1, 2000000 / n);
+        double heap = 0, radix = 0, packed = 0;
+        for (int round = 0; round < 2; round++) {    // first round warms up
+          long start = System.nanoTime();
+          for (int j = 0; j < reps; j++) {
+            Heapsort h = new Heapsort(n);
+            for (int i = 0; i < n; i++) {
+              h.insert(Integer.valueOf(i), keys[i]);
+            }
+            h.sort();
+          }
+          heap = (System.nanoTime() - start) / 1e6 / reps;
+          start = System.nanoTime();
+          for (int j = 0; j < reps; j++) {
+            sortIndices(keys, n);
+          }
+          radix = (System.nanoTime() - start) / 1e6 / reps;
+          start = System.nanoTime();
+          for (int j = 0; j < reps; j++) {
+            long[] a = new long[n];
+            for (int i = 0; i < n; i++) {
+              a[i] = pack(keys[i], i);
+            }
+            sort(a, n);
+          }
+          packed = (System.nanoTime() - start) / 1e6 / reps;
+        }
+        System.out.println(String.format("%8d   %12.3f   %9.3f   %10.3f",
+                                         n, heap, radix, packed));
+      }
+    }
+  }
+
+  /**
+   * checkSorts() runs the sort checks of main().
+   */
+  private static boolean checkSorts() {
+    Random random = new Random(5);
+    int[] sizes = {0, 1, 2, 255, 256, 257, 1000, 100000};
+    boolean ok = true;
+    for (int s = 0; s < sizes.length; s++) {
+      int n = sizes[s];
+      for (int kind = 0; kind < 4; kind++) {
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+          switch (kind) {
+          case 0:                                     // small, with negatives
+            keys[i] = random.nextInt(200) - 100;
+            break;
+          case 1:                                     // any int
+            keys[i] = random.nextInt();
+            break;
+          case 2:                                     // the extremes and 0
+            int[] ends = {Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -1,
+                          Integer.MIN_VALUE + 1, Integer.MAX_VALUE - 1};
+            keys[i] = ends[random.nextInt(ends.length)];
+            break;
+          default:                                    // all equal
+            keys[i] = -7;
+          }
+        }
+        ok &= sortedStable(keys, sortIndices(keys, n));
+
+        // sort() keeps ties in input order whatever the packed index, so
+        // the indices are shuffled, and positions are checked instead.
+        int[] shuffled = new int[n];
+        for (int i = 0; i < n; i++) {
+          int j = random.nextInt(i + 1);
+          shuffled[i] = shuffled[j];
+          shuffled[j] = i;
+        }
+        int[] position = new int[n];
+        long[] a = new long[n];
+        for (int i = 0; i < n; i++) {
+          a[i] = pack(keys[shuffled[i]], shuffled[i]);
+          position[shuffled[i]] = i;
+        }
+        sort(a, n);
+        int[] order = new int[n];
+        int[] keysByPosition = new int[n];
+        for (int i = 0; i < n; i++) {
+          ok &= key(a[i]) == keys[index(a[i])];
+          order[i] = position[index(a[i])];
+          keysByPosition[position[index(a[i])]] = key(a[i]);
+        }
+        ok &= sortedStable(keysByPosition, order);
+      }
+    }
+    return ok;
+  }
+
+  /**
+   * sortedStable() returns true if "order" is a permutation of the indices
+   * of "keys", ascending by key, with ties in index order.
+   */
+  private static boolean sortedStable(int[] keys, int[] order) {
+    if (order.length != keys.length) {
+      return false;
+    }
+    boolean[] seen = new boolean[keys.length];
+    for (int i = 0; i < order.length; i++) {
+      if (seen[order[i]]) {
+        return false;
+      }
+      seen[order[i]] = true;
+      if (i > 0) {
+        int a = keys[order[i - 1]];
+        int b = keys[order[i]];
+        if (a > b || (a == b && order[i - 1] > order[i])) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * checkKruskal() runs the RADIX_PACKED checks of main().
+   */
+  private static boolean checkKruskal() {
+    Random random = new Random(6);
+    boolean ok = true;
+    for (int trial = 0; trial < 20; trial++) {
+      int n = 10 + random.nextInt(3000);
+      int range = trial % 2 == 0 ? 10 : Integer.MAX_VALUE;
+      WUGraph g = new WUGraph(n, 6 * n);
+      for (int i = 0; i < n; i++) {
+        g.addVertex(Integer.valueOf(i));
+      }
+      for (int i = 0; i < 6 * n; i++) {
+        g.addEdgeById(random.nextInt(n), random.nextInt(n),
+                      random.nextInt(range) - range / 2);
+      }
+      CompactGraph c = g.freeze();
+      MstResult packed = Kruskal.minSpanTreeResult(c, Kruskal.RADIX_PACKED);
+      MstResult heap = Kruskal.minSpanTreeResult(c, Kruskal.HEAPSORT);
+      ok &= packed.totalWeight == heap.totalWeight &&
+            packed.edgeCount() == heap.edgeCount() &&
+            Kruskal.sameEdges(packed.toWUGraph(),
+                              Kruskal.minSpanTree(c, Kruskal.RADIX));
+    }
+    return ok;
+  }
+}
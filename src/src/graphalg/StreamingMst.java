@@ -0,0 +1,324 @@
+/* StreamingMst.java */
+
+package src.graphalg;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import src.graph.*;
+import src.set.*;
+
+/**
+ * A StreamingMst keeps a minimum spanning forest of a graph whose edges
+ * arrive one at a time, without storing the edges themselves:  it holds only
+ * the current forest, at most V - 1 edges, so its memory is O(V) however long
+ * the stream runs.  currentForest() returns the forest of all the edges seen
+ * so far.
+ *
+ * Vertices are numbered from zero.  addEdge() works by the cycle property.
+ * If the new edge joins two trees (a DisjointSets query), it simply joins
+ * the forest.  Otherwise it closes a cycle with the forest path between its
+ * endpoints; the heaviest edge on that cycle is in no minimum spanning
+ * forest, so if the new edge is lighter than the heaviest path edge it takes
+ * that edge's place, and else it is dropped.  A replacement never changes
+ * which vertices are connected, so the DisjointSets stays exact even though
+ * union-find cannot delete.
+ *
+ * The path is found by two breadth-first searches, one from each endpoint,
+ * that take turns by frontier size and stop as soon as they meet.  When the
+ * endpoints are close this visits far less than their tree, but in the worst
+ * case (a long path, or endpoints at the far ends of a bushy tree) it still
+ * costs O(t) per edge, where t is the size of that tree.  A link-cut tree
+ * would bring the path query and the swap down to O(log V) amortized, at
+ * the price of a much larger structure.  Edges that join two trees, and
+ * self-edges, cost O(1) amortized.
+ */
+
+public class StreamingMst {
+
+  private final DisjointSets sets = new DisjointSets();
+
+  private int[] from = new int[8];                 // forest edges, by slot
+  private int[] to = new int[8];
+  private int[] weight = new int[8];
+  private int edges;                               // slots in use
+  private long totalWeight;
+
+  private int[][] adj = new int[8][];       // adj[v][0...degree[v]-1] = slots
+  private int[] degree = new int[8];
+
+  private int[] mark = new int[8];   // stamp:  reached from u; stamp + 1:  v
+  private int stamp;
+  private int[] parent = new int[8];   // slot leading back toward u or v
+  private int[] queue = new int[8];    // u's queue at front, v's at back
+
+  /**
+   * Construct a StreamingMst with no vertices and no edges.
+   */
+  public StreamingMst() {
+  }
+
+  /**
+   * Construct a StreamingMst with the vertices 0...vertexCount - 1 and no
+   * edges.
+   */
+  public StreamingMst(int vertexCount) {
+    grow(vertexCount);
+  }
+
+  /**
+   * vertexCount() returns the number of vertices seen so far.
+   */
+  public int vertexCount() {
+    return sets.size();
+  }
+
+  /**
+   * edgeCount() returns the number of edges in the current forest.
+   */
+  public int edgeCount() {
+    return edges;
+  }
+
+  /**
+   * totalWeight() returns the total weight of the current forest.
+   */
+  public long totalWeight() {
+    return totalWeight;
+  }
+
+  /**
+   * addVertex() adds a new vertex, with no edges, and returns its number.
+   *
+   * Running time:  O(1) amortized.
+   */
+  public int addVertex() {
+    grow(sets.size() + 1);
+    return sets.size() - 1;
+  }
+
+  /**
+   * addEdge() feeds the edge (u, v) with weight "weight" to the forest.  If
+   * u or v is not yet a vertex, the vertices up to it are added first.
+   * Self-edges are ignored.
+   *
+   * @return true if the edge joined the forest, false if it was dropped.
+   *
+   * Running time:  O(1) amortized if u and v were in different trees,
+   * otherwise O(t) in the worst case, where t is the number of vertices in
+   * their tree.
+   */
+  public boolean addEdge(int u, int v, int weight) {
+    grow(Math.max(u, v) + 1);
+    if (u == v) {
+      return false;
+    }
+    int r1 = sets.find(u);
+    int r2 = sets.find(v);
+    if (r1 != r2) {
+      sets.union(r1, r2);
+      if (edges == from.length) {
+        int capacity = 2 * edges;
+        from = Arrays.copyOf(from, capacity);
+        to = Arrays.copyOf(to, capacity);
+        this.weight = Arrays.copyOf(this.weight, capacity);
+      }
+      place(edges++, u, v, weight);
+      return true;
+    }
+
+    int heaviest = heaviestOnPath(u, v);
+    if (weight >= this.weight[heaviest]) {
+      return false;
+    }
+    unlink(from[heaviest], heaviest);
+    unlink(to[heaviest], heaviest);
+    totalWeight -= this.weight[heaviest];
+    place(heaviest, u, v, weight);
+    return true;
+  }
+
+  /**
+   * currentForest() returns the minimum spanning forest of every edge fed to
+   * addEdge() so far, with its edges sorted by weight.  The StreamingMst
+   * keeps running; later edges do not change the returned result.
+   *
+   * Running time:  O(|V|).
+   */
+  public MstResult currentForest() {
+    int[] order = RadixSort.sortIndices(weight, edges);
+    int[] f = new int[edges];
+    int[] t = new int[edges];
+    int[] w = new int[edges];
+    for (int i = 0; i < edges; i++) {
+      f[i] = from[order[i]];
+      t[i] = to[order[i]];
+      w[i] = weight[order[i]];
+    }
+    return new MstResult(sets.size(), f, t, w, edges);
+  }
+
+  /**
+   * place() puts the edge (u, v) into slot "slot" and links it into the
+   * adjacency lists of both endpoints.
+   */
+  private void place(int slot, int u, int v, int weight) {
+    from[slot] = u;
+    to[slot] = v;
+    this.weight[slot] = weight;
+    totalWeight += weight;
+    link(u, slot);
+    link(v, slot);
+  }
+
+  private void link(int v, int slot) {
+    if (adj[v] == null) {
+      adj[v] = new int[2];
+    } else if (degree[v] == adj[v].length) {
+      adj[v] = Arrays.copyOf(adj[v], 2 * degree[v]);
+    }
+    adj[v][degree[v]++] = slot;
+  }
+
+  private void unlink(int v, int slot) {
+    int[] a = adj[v];
+    for (int i = 0; i < degree[v]; i++) {
+      if (a[i] == slot) {
+        a[i] = a[--degree[v]];
+        return;
+      }
+    }
+  }
+
+  /**
+   * heaviestOnPath() returns the slot of the heaviest edge on the forest path
+   * from u to v, which must be distinct vertices of the same tree.
+   *
+   * A search grows from each endpoint, always advancing the one with the
+   * smaller frontier, until an edge joins a vertex reached from u to one
+   * reached from v.  In a tree that edge lies on the path, and the parent
+   * slots lead from its ends back to u and v.  u's queue fills "queue" from
+   * the front and v's from the back; they never overlap, since no vertex is
+   * queued twice.
+   */
+  private int heaviestOnPath(int u, int v) {
+    if (stamp >= Integer.MAX_VALUE - 2) {      // stamps would wrap; start over
+      Arrays.fill(mark, 0);
+      stamp = 0;
+    }
+    stamp += 2;
+    int uHead = 0;
+    int uTail = 0;
+    int vHead = queue.length - 1;
+    int vTail = vHead;
+    queue[uTail++] = u;
+    mark[u] = stamp;
+    queue[vTail--] = v;
+    mark[v] = stamp + 1;
+    int meet = -1;
+    int x = u;
+    int y = v;
+    while (meet < 0) {
+      boolean fromU = uTail - uHead <= vHead - vTail;
+      int own = fromU ? stamp : stamp + 1;
+      x = fromU ? queue[uHead++] : queue[vHead--];
+      for (int i = 0; i < degree[x]; i++) {
+        int slot = adj[x][i];
+        y = from[slot] == x ? to[slot] : from[slot];
+        if (mark[y] == own) {
+          continue;
+        }
+        if (mark[y] == (own ^ 1)) {               // the other search's mark
+          meet = slot;
+          break;
+        }
+        mark[y] = own;
+        parent[y] = slot;
+        if (fromU) {
+          queue[uTail++] = y;
+        } else {
+          queue[vTail--] = y;
+        }
+      }
+    }
+    int heaviest = heavierOnChain(x, meet);
+    return heavierOnChain(y, heaviest);
+  }
+
+  /**
+   * heavierOnChain() follows parent slots from x back to u or v, and returns
+   * the heaviest of those slots and "heaviest".
+   */
+  private int heavierOnChain(int x, int heaviest) {
+    int root = mark[x] == stamp ? queue[0] : queue[queue.length - 1];
+    while (x != root) {
+      int slot = parent[x];
+      if (weight[slot] > weight[heaviest]) {
+        heaviest = slot;
+      }
+      x = from[slot] == x ? to[slot] : from[slot];
+    }
+    return heaviest;
+  }
+
+  /**
+   * grow() adds vertices until there are at least "n".
+   */
+  private void grow(int n) {
+    if (n > adj.length) {
+      int capacity = Math.max(n, 2 * adj.length);
+      adj = Arrays.copyOf(adj, capacity);
+      degree = Arrays.copyOf(degree, capacity);
+      mark = Arrays.copyOf(mark, capacity);
+      parent = Arrays.copyOf(parent, capacity);
+      queue = Arrays.copyOf(queue, capacity);
+    }
+    while (sets.size() < n) {
+      sets.makeSet();
+    }
+  }
+
+  /**
+   * main() streams random edges, each pair at most once, into a
+   * StreamingMst and into a WUGraph, and at checkpoints along the way checks
+   * the current forest against Kruskal's algorithm run on every edge so far.
+   */
+  public static void main(String[] args) {
+    Random random = new Random(6);
+    int n = 3000;
+    WUGraph g = new WUGraph(n, 40 * n);
+    for (int i = 0; i < n; i++) {
+      g.addVertex(Integer.valueOf(i));
+    }
+    StreamingMst s = new StreamingMst();
+    boolean ok = true;
+    int checkpoints = 0;
+    long nanos = 0;
+    for (int i = 1; i <= 40 * n; i++) {
+      int u = random.nextInt(n);
+      int v = random.nextInt(n);
+      if (u == v || g.isEdge(Integer.valueOf(u), Integer.valueOf(v))) {
+        continue;
+      }
+      int w = random.nextInt(10000) - 500;
+      g.addEdgeById(u, v, w);
+      long start = System.nanoTime();
+      s.addEdge(u, v, w);
+      nanos += System.nanoTime() - start;
+      if (g.edgeCount() % 10000 == 0 || i == 40 * n) {
+        MstResult expected = Kruskal.minSpanTreeResult(g);
+        MstResult actual = s.currentForest();
+        ok &= actual.totalWeight == expected.totalWeight &&
+              actual.edgeCount() == expected.edgeCount() &&
+              actual.totalWeight == s.totalWeight() &&
+              s.edgeCount() <= n - 1;
+        checkpoints++;
+      }
+    }
+    System.out.println(g.edgeCount() + " streamed edges in " +
+                       nanos / 1000000 + " ms; forest holds " +
+                       s.edgeCount() + "; " + checkpoints +
+                       " checkpoints; streaming MST test " +
+                       (ok ? "passed." : "FAILED."));
+  }
+}
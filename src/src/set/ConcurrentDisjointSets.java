@@ -0,0 +1,190 @@
+/* ConcurrentDisjointSets.java */
+
+package src.set;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ *  A disjoint sets ADT that many threads may use at once, with no locks.
+ *  Elements are represented by ints, numbered from zero, as in DisjointSets.
+ *
+ *  Each element stores its parent in an AtomicIntegerArray; a root is its
+ *  own parent.  union() links the root with the larger index under the one
+ *  with the smaller index using a single compare-and-set, and retries if
+ *  another thread moved either root first.  find() shortens the path as it
+ *  goes by path splitting (pointing each element it passes at its
+ *  grandparent), also with compare-and-set; a failed CAS only means another
+ *  thread already shortened that link, so find() never waits and never
+ *  retries.
+ *
+ *  Unlike DisjointSets.union(), union() here accepts any two elements, not
+ *  just roots, and is harmless if they are already in the same set.
+ **/
+
+public class ConcurrentDisjointSets {
+
+  private final AtomicIntegerArray parent;
+
+  /**
+   *  Construct a disjoint sets object in which each of the numElements
+   *  elements is in a set by itself.
+   **/
+  public ConcurrentDisjointSets(int numElements) {
+    parent = new AtomicIntegerArray(numElements);
+    for (int i = 0; i < numElements; i++) {
+      parent.set(i, i);
+    }
+  }
+
+  /**
+   *  size() returns the number of elements.
+   **/
+  public int size() {
+    return parent.length();
+  }
+
+  /**
+   *  find() returns the root of the set containing x.  If other threads are
+   *  calling union() at the same time, the root returned was the root of x's
+   *  set at some moment during the call.
+   *
+   *  @param x the element sought.
+   *  @return the set containing x.
+   **/
+  public int find(int x) {
+    while (true) {
+      int p = parent.get(x);
+      if (p == x) {
+        return x;
+      }
+      int gp = parent.get(p);
+      if (gp != p) {
+        parent.compareAndSet(x, p, gp);
+      }
+      x = p;
+    }
+  }
+
+  /**
+   *  union() unites the sets containing a and b.
+   *
+   *  @return true if this call merged two different sets; false if a and b
+   *  were already in the same set.  When several threads race to unite the
+   *  same two sets, exactly one of them gets true.
+   **/
+  public boolean union(int a, int b) {
+    while (true) {
+      a = find(a);
+      b = find(b);
+      if (a == b) {
+        return false;
+      }
+      if (a < b) {
+        int t = a;
+        a = b;
+        b = t;
+      }
+      if (parent.compareAndSet(a, a, b)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   *  sameSet() returns true if a and b are in the same set.  The answer is
+   *  exact at some moment during the call.
+   **/
+  public boolean sameSet(int a, int b) {
+    while (true) {
+      a = find(a);
+      b = find(b);
+      if (a == b) {
+        return true;
+      }
+      if (parent.get(a) == a) {         // a was still a root after b's find
+        return false;
+      }
+    }
+  }
+
+  /**
+   *  main() is a stress test.  Several threads unite random pairs at once;
+   *  the resulting partition and the number of successful unions are then
+   *  checked against DisjointSets run on the same pairs.
+   **/
+  public static void main(String[] args) throws InterruptedException {
+    final int numElements = 1 << 20;
+    final int numPairs = 1 << 20;
+    final int numThreads = Math.max(4,
+                                    Runtime.getRuntime().availableProcessors());
+    Random random = new Random(7);
+    final int[] a = new int[numPairs];
+    final int[] b = new int[numPairs];
+    for (int i = 0; i < numPairs; i++) {
+      a[i] = random.nextInt(numElements);
+      b[i] = random.nextInt(numElements);
+    }
+
+    final ConcurrentDisjointSets c = new ConcurrentDisjointSets(numElements);
+    final AtomicInteger merges = new AtomicInteger();
+    Thread[] threads = new Thread[numThreads];
+    long start = System.nanoTime();
+    for (int t = 0; t < numThreads; t++) {
+      final int first = t;
+      threads[t] = new Thread() {
+        public void run() {
+          int count = 0;
+          for (int i = first; i < numPairs; i += numThreads) {
+            if (c.union(a[i], b[i])) {
+              count++;
+            }
+            c.find(b[(i * 31) % numPairs]);
+          }
+          merges.addAndGet(count);
+        }
+      };
+      threads[t].start();
+    }
+    for (int t = 0; t < numThreads; t++) {
+      threads[t].join();
+    }
+    long ms = (System.nanoTime() - start) / 1000000;
+
+    DisjointSets s = new DisjointSets(numElements);
+    int seqMerges = 0;
+    for (int i = 0; i < numPairs; i++) {
+      int r1 = s.find(a[i]);
+      int r2 = s.find(b[i]);
+      if (r1 != r2) {
+        s.union(r1, r2);
+        seqMerges++;
+      }
+    }
+
+    // The partitions agree iff the map from sequential root to concurrent
+    // root is well defined and one-to-one.
+    int[] image = new int[numElements];
+    int[] preimage = new int[numElements];
+    for (int i = 0; i < numElements; i++) {
+      image[i] = -1;
+      preimage[i] = -1;
+    }
+    boolean ok = merges.get() == seqMerges;
+    for (int i = 0; ok && i < numElements; i++) {
+      int sr = s.find(i);
+      int cr = c.find(i);
+      if (image[sr] == -1 && preimage[cr] == -1) {
+        image[sr] = cr;
+        preimage[cr] = sr;
+      } else if (image[sr] != cr || preimage[cr] != sr) {
+        ok = false;
+      }
+    }
+    System.out.println(numThreads + " threads, " + numPairs + " unions: " +
+                       ms + " ms, " + merges.get() + " merges; " +
+                       (ok ? "matches DisjointSets." :
+                        "DOES NOT MATCH DisjointSets."));
+  }
+}
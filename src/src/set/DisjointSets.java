@@ -3,13 +3,19 @@
 package src.set;
 
 /**
- *  A disjoint sets ADT.  Performs union-by-size and path compression.
- *  Implemented using arrays.  There is no error checking whatsoever.
- *  By adding your own error-checking, you might save yourself a lot of time
- *  finding bugs in your application code for Project 3 and Homework 9.
- *  Without error-checking, expect bad things to happen if you try to unite
- *  two elements that are not roots of their respective sets, or are not
- *  distinct.
+ *  A disjoint sets ADT.  Performs union-by-size and path halving.
+ *  Implemented using arrays.  In the main array a nonnegative entry is the
+ *  element's parent, and a root holds -(size of its set).  Nothing recurses,
+ *  so trees of any depth are safe, and union-by-size keeps every tree
+ *  O(log n) deep anyway.
+ *  There is no bounds checking; union() finds the roots of its arguments
+ *  itself and ignores elements already in the same set.
+ *
+ *  Since the roots hold the set sizes, sizeOf() costs only a find().  One
+ *  more array links the members of each set into a circular list (next[]),
+ *  so that the members of a set, like the number of sets, are available
+ *  without scanning every element.  Elements can be added one at a time with
+ *  makeSet(); the arrays double when full.
  *
  *  Elements are represented by ints, numbered from zero.
  **/
@@ -17,6 +23,9 @@ package src.set;
 public class DisjointSets {
 
   private int[] array;
+  private int[] next;                     // next member, around the circle
+  private int count;                                  // number of elements
+  private int components;                                 // number of sets
 
   /**
    *  Construct a disjoint sets object.
@@ -26,54 +35,182 @@ public class DisjointSets {
    **/
   public DisjointSets(int numElements) {
     array = new int [numElements];
+    next = new int [numElements];
     for (int i = 0; i < array.length; i++) {
       array[i] = -1;
+      next[i] = i;
+    }
+    count = numElements;
+    components = numElements;
+  }
+
+  /**
+   *  Construct a disjoint sets object with no elements.  Add elements with
+   *  makeSet().
+   **/
+  public DisjointSets() {
+    this(0);
+  }
+
+  /**
+   *  makeSet() adds a new element, in a set by itself, and returns it.  The
+   *  new element is always the number of elements before the call.
+   *
+   *  Running time:  O(1) amortized.
+   **/
+  public int makeSet() {
+    if (count == array.length) {
+      int capacity = Math.max(2 * count, 8);
+      int[] a = new int[capacity];
+      int[] n = new int[capacity];
+      System.arraycopy(array, 0, a, 0, count);
+      System.arraycopy(next, 0, n, 0, count);
+      array = a;
+      next = n;
+    }
+    array[count] = -1;
+    next[count] = count;
+    components++;
+    return count++;
+  }
+
+  /**
+   *  size() returns the number of elements.
+   **/
+  public int size() {
+    return count;
+  }
+
+  /**
+   *  componentCount() returns the number of disjoint sets.
+   *
+   *  Running time:  O(1).
+   **/
+  public int componentCount() {
+    return components;
+  }
+
+  /**
+   *  sizeOf() returns the number of elements in the set containing x.
+   *
+   *  Running time:  O(1), plus one find().
+   **/
+  public int sizeOf(int x) {
+    return -array[find(x)];
+  }
+
+  /**
+   *  next() returns the member after x in the circular list of members of
+   *  x's set.  Starting from any member and calling next() sizeOf(x) times
+   *  visits every member once and returns to the start.
+   *
+   *  Running time:  O(1).
+   **/
+  public int next(int x) {
+    return next[x];
+  }
+
+  /**
+   *  members() returns a new array holding every member of the set
+   *  containing x, starting with x.
+   *
+   *  Running time:  O(s), where s is the size of the set.
+   **/
+  public int[] members(int x) {
+    int[] out = new int[sizeOf(x)];
+    int y = x;
+    for (int i = 0; i < out.length; i++) {
+      out[i] = y;
+      y = next[y];
     }
+    return out;
   }
 
   /**
-   *  union() unites two disjoint sets into a single set.  A union-by-size
-   *  heuristic is used to choose the new root.  This method will corrupt
-   *  the data structure if root1 and root2 are not roots of their respective
-   *  sets, or if they're identical.
+   *  union() unites two disjoint sets into a single set.  The root of the
+   *  larger set becomes the root of the union.  root1 and root2 need not
+   *  be roots:  the roots of their sets are found first.  If both are in
+   *  the same set, nothing changes.
    *
-   *  @param root1 the root of the first set.
-   *  @param root2 the root of the other set.
+   *  @param root1 an element of the first set.
+   *  @param root2 an element of the other set.
    **/
   public void union(int root1, int root2) {
-	if(root1 == root2) {return;}
-	if(root1 >= 0) {
-		root1 = this.find(root1);
-	}
-	if(root2 >= 0) {
-		root2 = this.find(root2);		
-	}
-    if (array[root2] < array[root1]) {                 // root2 has larger tree
-      array[root2] += array[root1];        // update # of items in root2's tree
+    root1 = find(root1);
+    root2 = find(root2);
+    if (root1 == root2) {
+      return;
+    }
+    if (array[root2] < array[root1]) {               // root2's set is larger
+      array[root2] += array[root1];
       array[root1] = root2;                              // make root2 new root
-    } else {                                  // root1 has equal or larger tree
-      array[root1] += array[root2];        // update # of items in root1's tree
+    } else {
+      array[root1] += array[root2];
       array[root2] = root1;                              // make root1 new root
     }
+    int t = next[root1];                // splice the two member circles
+    next[root1] = next[root2];
+    next[root2] = t;
+    components--;
   }
 
   /**
    *  find() finds the (int) name of the set containing a given element.
-   *  Performs path compression along the way.
+   *  Performs path halving along the way:  every other element on the path
+   *  is pointed at its grandparent.  Iterative, so the depth of the tree
+   *  does not matter.
    *
    *  @param x the element sought.
    *  @return the set containing x.
    **/
   public int find(int x) {
-    if (array[x] < 0) {
-      return x;                         // x is the root of the tree; return it
-    } else {
-      // Find out who the root is; compress path by making the root x's parent.
-      array[x] = find(array[x]);
-      return array[x];                                       // Return the root
+    int p;
+    while ((p = array[x]) >= 0) {
+      int gp = array[p];
+      if (gp < 0) {
+        return p;                                           // p is the root
+      }
+      array[x] = gp;                               // skip over the parent
+      x = gp;
+    }
+    return x;                           // x is the root of the tree; return it
+  }
+
+  /**
+   *  find() finds the set of every element of xs at once:  out[i] is set to
+   *  find(xs[i]).  out may be the same array as xs.
+   *
+   *  @param xs the elements sought.
+   *  @param out receives the sets containing them.
+   **/
+  public void find(int[] xs, int[] out) {
+    for (int i = 0; i < xs.length; i++) {
+      out[i] = find(xs[i]);
     }
   }
 
+  /**
+   *  unionAll() unites the set of a[i] with the set of b[i], for every i,
+   *  in order.
+   *
+   *  @param a elements of the first sets.
+   *  @param b elements of the other sets; the same length as a.
+   *  @return the number of pairs that were in different sets, i.e. the
+   *  number of merges performed.
+   **/
+  public int unionAll(int[] a, int[] b) {
+    int merges = 0;
+    for (int i = 0; i < a.length; i++) {
+      int r1 = find(a[i]);
+      int r2 = find(b[i]);
+      if (r1 != r2) {
+        union(r1, r2);
+        merges++;
+      }
+    }
+    return merges;
+  }
+
   /**
    *  main() is test code.  All the find()s on the same output line should be
    *  identical.
@@ -100,5 +237,63 @@ public class DisjointSets {
       }
     }
     System.out.println();
+
+    // A million elements linked into a single parent chain by hand, since
+    // union-by-size never builds one.  The old recursive find() overflowed
+    // the stack on the leaf; path halving also halves the chain.
+    int big = 1 << 20;
+    DisjointSets c = new DisjointSets(big);
+    for (int i = 0; i < big - 1; i++) {
+      c.array[i] = i + 1;
+      c.next[i] = i + 1;
+    }
+    c.array[big - 1] = -big;
+    c.next[big - 1] = 0;
+    c.components = 1;
+    int root = c.find(0);
+    int depth = 0;
+    for (int x = 0; c.array[x] >= 0; x = c.array[x]) {
+      depth++;
+    }
+    System.out.println((big - 1) + "-deep chain:  find(leaf) = " + root +
+                       " (should be " + (big - 1) + "), depth now " + depth +
+                       ", sizeOf(leaf) = " + c.sizeOf(0));
+
+    // The batch entry points on the same number of elements.
+    DisjointSets d = new DisjointSets(big);
+    int[] a = new int[big - 1];
+    int[] b = new int[big - 1];
+    for (int i = 0; i < big - 1; i++) {
+      a[i] = big - 1 - i;
+      b[i] = big - 2 - i;
+    }
+    int merges = d.unionAll(a, b);
+    int[] roots = new int[big];
+    for (int i = 0; i < big; i++) {
+      roots[i] = i;
+    }
+    d.find(roots, roots);
+    boolean oneSet = true;
+    for (int i = 0; i < big; i++) {
+      oneSet = oneSet && roots[i] == roots[0];
+    }
+    System.out.println(big + "-element chain:  " + merges +
+                       " merges, one set: " + oneSet);
+
+    // Sets grown one element at a time.
+    DisjointSets g = new DisjointSets();
+    for (int i = 0; i < 10; i++) {
+      g.makeSet();
+    }
+    g.union(0, 3);
+    g.union(3, 6);
+    g.union(6, 9);
+    g.union(1, 2);
+    int[] m = g.members(6);
+    java.util.Arrays.sort(m);
+    System.out.println("componentCount() should be 6: " + g.componentCount());
+    System.out.println("sizeOf(9) should be 4: " + g.sizeOf(9));
+    System.out.println("members(6) should be [0, 3, 6, 9]: " +
+                       java.util.Arrays.toString(m));
   }
 }
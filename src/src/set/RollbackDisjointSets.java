@@ -0,0 +1,202 @@
+/* RollbackDisjointSets.java */
+
+package src.set;
+
+import java.util.Random;
+
+/**
+ *  A disjoint sets ADT whose unions can be undone.  Performs union-by-rank
+ *  but no path compression, so every union changes exactly one parent
+ *  pointer (and perhaps one rank), and undoing it is O(1).  Without path
+ *  compression find() costs O(log n), which union-by-rank guarantees.
+ *
+ *  checkpoint() marks the current state; rollback() undoes every union made
+ *  since a mark.  Marks nest like a stack:  rolling back to an earlier mark
+ *  also discards the later ones.  This is the building block for offline
+ *  dynamic connectivity and MST-under-deletions, where a divide-and-conquer
+ *  over a batch of edge insertions and deletions unites edges going down
+ *  the recursion and rolls them back coming up, instead of rebuilding a
+ *  DisjointSets from scratch for every scenario.
+ *
+ *  Elements are represented by ints, numbered from zero.
+ **/
+
+public class RollbackDisjointSets {
+
+  private final int[] parent;                     // a root is its own parent
+  private final int[] rank;
+  private final int[] size;                         // size[root] = # members
+  private int[] undoChild;               // the root that each union demoted
+  private boolean[] undoRank;       // whether that union bumped a rank
+  private int top;                                    // height of undo stack
+  private int components;
+
+  /**
+   *  Construct a disjoint sets object in which each of the numElements
+   *  elements is in a set by itself.
+   **/
+  public RollbackDisjointSets(int numElements) {
+    parent = new int[numElements];
+    rank = new int[numElements];
+    size = new int[numElements];
+    for (int i = 0; i < numElements; i++) {
+      parent[i] = i;
+      size[i] = 1;
+    }
+    undoChild = new int[16];
+    undoRank = new boolean[16];
+    components = numElements;
+  }
+
+  /**
+   *  find() returns the root of the set containing x.  Does not change the
+   *  structure.
+   *
+   *  Running time:  O(log n).
+   **/
+  public int find(int x) {
+    while (parent[x] != x) {
+      x = parent[x];
+    }
+    return x;
+  }
+
+  /**
+   *  union() unites the sets containing a and b, which need not be roots.
+   *
+   *  @return true if two sets were merged; false if a and b were already in
+   *  the same set, in which case nothing is recorded.
+   *
+   *  Running time:  O(log n).
+   **/
+  public boolean union(int a, int b) {
+    a = find(a);
+    b = find(b);
+    if (a == b) {
+      return false;
+    }
+    if (rank[a] < rank[b]) {
+      int t = a;
+      a = b;
+      b = t;
+    }
+    boolean bump = rank[a] == rank[b];
+    parent[b] = a;
+    size[a] += size[b];
+    if (bump) {
+      rank[a]++;
+    }
+    if (top == undoChild.length) {
+      int[] c = new int[2 * top];
+      boolean[] r = new boolean[2 * top];
+      System.arraycopy(undoChild, 0, c, 0, top);
+      System.arraycopy(undoRank, 0, r, 0, top);
+      undoChild = c;
+      undoRank = r;
+    }
+    undoChild[top] = b;
+    undoRank[top] = bump;
+    top++;
+    components--;
+    return true;
+  }
+
+  /**
+   *  checkpoint() returns a mark for the current state, to pass to
+   *  rollback() later.
+   *
+   *  Running time:  O(1).
+   **/
+  public int checkpoint() {
+    return top;
+  }
+
+  /**
+   *  rollback() undoes, newest first, every union made since checkpoint()
+   *  returned "mark".
+   *
+   *  Running time:  O(k), where k is the number of unions undone.
+   **/
+  public void rollback(int mark) {
+    while (top > mark) {
+      top--;
+      int b = undoChild[top];
+      int a = parent[b];
+      parent[b] = b;
+      size[a] -= size[b];
+      if (undoRank[top]) {
+        rank[a]--;
+      }
+      components++;
+    }
+  }
+
+  /**
+   *  componentCount() returns the number of disjoint sets.
+   **/
+  public int componentCount() {
+    return components;
+  }
+
+  /**
+   *  sizeOf() returns the number of elements in the set containing x.
+   **/
+  public int sizeOf(int x) {
+    return size[find(x)];
+  }
+
+  /**
+   *  main() is test code.  It makes random unions under nested checkpoints,
+   *  rolls some of them back, and after every step compares the partition
+   *  with a DisjointSets rebuilt from the unions still in effect.
+   **/
+  public static void main(String[] args) {
+    int n = 200;
+    Random random = new Random(11);
+    RollbackDisjointSets r = new RollbackDisjointSets(n);
+    int[] liveA = new int[100000];
+    int[] liveB = new int[100000];
+    int live = 0;
+    int[] marks = new int[1000];
+    int[] markLive = new int[1000];
+    int depth = 0;
+    boolean ok = true;
+    for (int step = 0; step < 5000 && ok; step++) {
+      int op = random.nextInt(10);
+      if (op < 2 && depth < marks.length) {
+        marks[depth] = r.checkpoint();
+        markLive[depth++] = live;
+      } else if (op < 4 && depth > 0) {
+        int d = random.nextInt(depth);
+        r.rollback(marks[d]);
+        live = markLive[d];
+        depth = d;
+      } else {
+        int a = random.nextInt(n);
+        int b = random.nextInt(n);
+        r.union(a, b);
+        liveA[live] = a;
+        liveB[live++] = b;
+      }
+      DisjointSets s = new DisjointSets(n);
+      for (int i = 0; i < live; i++) {
+        s.union(liveA[i], liveB[i]);
+      }
+      // The partitions agree iff each root of s maps to one root of r and
+      // the sizes match.
+      int[] image = new int[n];
+      for (int x = 0; x < n; x++) {
+        image[x] = -1;
+      }
+      ok = s.componentCount() == r.componentCount();
+      for (int x = 0; ok && x < n; x++) {
+        int sr = s.find(x);
+        if (image[sr] == -1) {
+          image[sr] = r.find(x);
+        }
+        ok = image[sr] == r.find(x) && s.sizeOf(x) == r.sizeOf(x);
+      }
+    }
+    System.out.println("Rollback test " + (ok ? "passed." : "FAILED."));
+  }
+}